@@ -0,0 +1,59 @@
+package pl.booklist.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.booklist.BookListApplication;
+import pl.booklist.model.Book;
+
+import java.util.List;
+
+/**
+ * Starts the application on an embedded H2 database, with the schema created by the Flyway migrations,
+ * and fills it with generated books.
+ *
+ * @author Paweł Opala
+ */
+final class BenchmarkDatabase {
+
+    private static final int INSERT_CHUNK = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * @param name name of the in-memory database, unique per benchmark
+     * @return started application without the web server
+     */
+    static ConfigurableApplicationContext start(String name) {
+        return new SpringApplicationBuilder(BookListApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "spring.jpa.hibernate.ddl-auto=validate",
+                        "spring.flyway.locations=classpath:db/migration/{vendor}",
+                        "booklist.cover.async.enabled=false",
+                        "booklist.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    /**
+     * Inserts the books with plain JDBC batches, which is much faster than JPA for millions of rows.
+     */
+    static void insert(JdbcTemplate jdbcTemplate, List<Book> books) {
+        String sql = "INSERT INTO book (id, title, author, owned, cover_url, cover_pending) VALUES (?, ?, ?, ?, ?, FALSE)";
+        for (int from = 0; from < books.size(); from += INSERT_CHUNK) {
+            List<Book> chunk = books.subList(from, Math.min(from + INSERT_CHUNK, books.size()));
+            jdbcTemplate.batchUpdate(sql, chunk, chunk.size(), (statement, book) -> {
+                statement.setLong(1, book.getId());
+                statement.setString(2, book.getTitle());
+                statement.setString(3, book.getAuthor());
+                statement.setBoolean(4, book.isOwned());
+                statement.setString(5, book.getCoverUrl());
+            });
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,83 @@
+package pl.booklist.benchmark;
+
+import pl.booklist.dto.BookDTO;
+import pl.booklist.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible lists of books for the benchmarks.
+ * The same count always gives the same books, so results of different runs can be compared.
+ *
+ * @author Paweł Opala
+ */
+public final class BookDataGenerator {
+
+    private static final long SEED = 20240101L;
+
+    private static final String[] TITLE_WORDS = {
+            "Wiedźmin", "Lód", "Solaris", "Lalka", "Ferdydurke", "Chłopi", "Potop", "Dżuma", "Księgi",
+            "Jakubowe", "Ostatnie", "Życzenie", "Miecz", "Przeznaczenia", "Pan", "Tadeusz", "Zbrodnia",
+            "Kara", "Cesarz", "Inne", "Pieśni", "Bieguni", "Czarne", "Oceany", "Perfekcyjna", "Niedoskonałość"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "Andrzej", "Jacek", "Stanisław", "Bolesław", "Witold", "Olga", "Wisława", "Henryk", "Adam",
+            "Maria", "Ryszard", "Szczepan", "Jarosław", "Agnieszka", "Zofia", "Czesław"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Sapkowski", "Dukaj", "Lem", "Prus", "Gombrowicz", "Tokarczuk", "Szymborska", "Sienkiewicz",
+            "Mickiewicz", "Kapuściński", "Twardoch", "Grzegorzewska", "Nałkowska", "Miłosz", "Reymont"
+    };
+
+    private BookDataGenerator() {
+    }
+
+    /**
+     * @param count number of books
+     * @return books with ids from 1 to count, every third one owned
+     */
+    public static List<Book> books(int count) {
+        Random random = new Random(SEED);
+        List<Book> books = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            books.add(new Book(id, title(random), author(random), id % 3 == 0, coverUrl(random)));
+        }
+        return books;
+    }
+
+    /**
+     * @param count number of books
+     * @return the same books as {@link #books(int)} as DTOs
+     */
+    public static List<BookDTO> dtos(int count) {
+        return books(count).stream()
+                .map(book -> new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.isOwned(),
+                        book.getCoverUrl()))
+                .toList();
+    }
+
+    private static String title(Random random) {
+        int words = 1 + random.nextInt(3);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    private static String author(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String coverUrl(Random random) {
+        return "http://books.google.com/books/content?id=" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36)
+                + "&printsec=frontcover&img=1&zoom=1&source=gbs_api";
+    }
+}
@@ -0,0 +1,77 @@
+package pl.booklist.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookExportFormat;
+import pl.booklist.repository.BookRepository;
+import pl.booklist.service.BookExportService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export of the whole collection from an embedded H2 database: {@link BookExportService} streaming rows
+ * from a JDBC cursor as CSV or NDJSON, plain and gzipped, against the list read into memory and written
+ * as a JSON array, which is what paging through the list endpoints amounts to.
+ * The output is discarded, so only reading and formatting are measured.
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BookExportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"csv", "ndjson"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ConfigurableApplicationContext context;
+    private BookExportService bookExportService;
+    private BookRepository bookRepository;
+    private ObjectWriter listWriter;
+    private BookExportFormat exportFormat;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start("booklist-export");
+        bookExportService = context.getBean(BookExportService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        BenchmarkDatabase.insert(context.getBean(JdbcTemplate.class), BookDataGenerator.books(size));
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookDTO.class));
+        exportFormat = BookExportFormat.fromParam(format);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        return bookExportService.export(exportFormat, null, gzip, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Baseline independent of the format parameters: the whole list as DTOs, then as a JSON array.
+     */
+    @Benchmark
+    public void materializedJsonArray() throws IOException {
+        listWriter.writeValue(OutputStream.nullOutputStream(), bookRepository.findAllDtos());
+    }
+}
@@ -0,0 +1,94 @@
+package pl.booklist.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.repository.BookRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access paths of the book table with and without the indexes added by the V6 migration:
+ * keyset pages of owned books ({@code idx_book_owned_id}) and books of an author sorted by title
+ * ({@code idx_book_author_title}). Without them, the indexes of the V9 migration that lead with {@code owned} are
+ * dropped as well, so the owned pages cannot fall back to them. The query plans are printed during the setup
+ * of each trial.
+ * <p>
+ * The author changes with every invocation: H2 reuses the result of a query run again with the same
+ * parameters on unchanged tables, which would leave nothing to measure.
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BookIndexBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final String[] AUTHORS = {"Andrzej Sapkowski", "Jacek Dukaj", "Stanisław Lem", "Olga Tokarczuk"};
+    private static final String BOOKS_OF_AUTHOR =
+            "SELECT id, title FROM book WHERE author = ? ORDER BY title LIMIT " + PAGE_SIZE;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private JdbcTemplate jdbcTemplate;
+    private Random cursors;
+    private int nextAuthor;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start("booklist-index");
+        bookRepository = context.getBean(BookRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX idx_book_owned_id");
+            jdbcTemplate.execute("DROP INDEX idx_book_author_title");
+            jdbcTemplate.execute("DROP INDEX idx_book_owned_title_id");
+            jdbcTemplate.execute("DROP INDEX idx_book_owned_author_id");
+        }
+        BenchmarkDatabase.insert(jdbcTemplate, BookDataGenerator.books(size));
+        cursors = new Random(size);
+
+        // the restriction of soft deletes is part of the query Hibernate sends for the page
+        explain("SELECT id, title, author, owned, cover_url FROM book"
+                + " WHERE owned = TRUE AND id > 0 AND deleted_at IS NULL ORDER BY id LIMIT " + PAGE_SIZE);
+        explain(BOOKS_OF_AUTHOR.replace("?", "'" + AUTHORS[0] + "'"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookDTO> ownedPage() {
+        long after = cursors.nextInt(Math.max(size - PAGE_SIZE, 1));
+        return bookRepository.findDtoPageByOwned(true, after, Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> booksOfAuthor() {
+        String author = AUTHORS[nextAuthor];
+        nextAuthor = (nextAuthor + 1) % AUTHORS.length;
+        return jdbcTemplate.queryForList(BOOKS_OF_AUTHOR, author);
+    }
+
+    private void explain(String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        System.out.println("[indexed=" + indexed + "] " + plan);
+    }
+}
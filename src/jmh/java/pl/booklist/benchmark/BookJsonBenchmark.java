@@ -0,0 +1,56 @@
+package pl.booklist.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import pl.booklist.dto.BookDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of book lists: the whole list as a JSON array (list endpoints)
+ * and book by book as NDJSON (stream endpoints).
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BookJsonBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectWriter listWriter;
+    private ObjectWriter ndjsonWriter;
+    private List<BookDTO> books;
+
+    @Setup
+    public void setUp() {
+        books = BookDataGenerator.dtos(size);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookDTO.class));
+        ndjsonWriter = objectMapper.writerFor(BookDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Benchmark
+    public byte[] jsonArray() throws IOException {
+        return listWriter.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public void ndjsonStream() throws IOException {
+        OutputStream out = OutputStream.nullOutputStream();
+        for (BookDTO book : books) {
+            ndjsonWriter.writeValue(out, book);
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pl.booklist.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.mapper.BookMapper;
+import pl.booklist.mapper.BookMapperImpl;
+import pl.booklist.model.Book;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BookMapper#toDtoList(List)} with the stream mapping used by {@code BookService}.
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BookMappingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private final BookMapper bookMapper = new BookMapperImpl();
+    private List<Book> books;
+
+    @Setup
+    public void setUp() {
+        books = BookDataGenerator.books(size);
+    }
+
+    @Benchmark
+    public List<BookDTO> mapperToDtoList() {
+        return bookMapper.toDtoList(books);
+    }
+
+    @Benchmark
+    public List<BookDTO> streamMapToDto() {
+        return books.stream()
+                .map(bookMapper::toDto)
+                .toList();
+    }
+}
@@ -0,0 +1,80 @@
+package pl.booklist.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List queries of {@link BookRepository} against an embedded H2 database filled with generated books.
+ * Compares reading books as managed entities with reading them straight into {@link BookDTO} projections,
+ * both for full lists and for keyset pages; run with the gc profiler to compare allocations per operation.
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BookRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private Random cursors;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start("booklist-repository");
+        bookRepository = context.getBean(BookRepository.class);
+        BenchmarkDatabase.insert(context.getBean(JdbcTemplate.class), BookDataGenerator.books(size));
+        cursors = new Random(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Book> findAllOwnedEntities() {
+        return bookRepository.findByOwnedTrue();
+    }
+
+    @Benchmark
+    public List<BookDTO> findAllOwnedDtos() {
+        return bookRepository.findDtosByOwned(true);
+    }
+
+    @Benchmark
+    public List<Book> keysetPageEntities() {
+        return bookRepository.findByOwnedAndIdGreaterThanOrderByIdAsc(true, nextCursor(), Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<BookDTO> keysetPageDtos() {
+        return bookRepository.findDtoPageByOwned(true, nextCursor(), Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<BookDTO> shelf() {
+        return bookRepository.findShelf(PAGE_SIZE);
+    }
+
+    private long nextCursor() {
+        return cursors.nextInt(Math.max(size - PAGE_SIZE, 1));
+    }
+}
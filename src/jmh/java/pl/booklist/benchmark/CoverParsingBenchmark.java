@@ -0,0 +1,79 @@
+package pl.booklist.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import pl.booklist.service.CoverService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the thumbnail from Google Books search responses: the token stream of {@link CoverService#thumbnailOf}
+ * against the tree which {@code RestTemplate} built for {@code JsonNode} responses before.
+ * The {@code response} parameter selects a full volume, the same volume limited by the {@code fields} parameter
+ * of the default API URL, and a search without results. The responses are synthetic but have the shape of real ones.
+ *
+ * @author Paweł Opala
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoverParsingBenchmark {
+
+    @Param({"volume", "volume-fields", "empty"})
+    private String response;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = resource("/benchmark/google-books-" + response + ".json");
+    }
+
+    @Benchmark
+    public Optional<String> tree() throws IOException {
+        return thumbnailOf(objectMapper.readTree(new ByteArrayInputStream(body)));
+    }
+
+    @Benchmark
+    public Optional<String> streaming() throws IOException {
+        return CoverService.thumbnailOf(new ByteArrayInputStream(body));
+    }
+
+    /**
+     * The lookup which {@code CoverService} did on the tree before it switched to streaming.
+     */
+    private static Optional<String> thumbnailOf(JsonNode root) {
+        JsonNode items = root != null ? root.get("items") : null;
+        if (items != null && items.size() > 0) {
+            JsonNode volumeInfo = items.get(0).get("volumeInfo");
+            if (volumeInfo != null) {
+                JsonNode imageLinks = volumeInfo.get("imageLinks");
+                if (imageLinks != null && imageLinks.has("thumbnail")) {
+                    return Optional.of(imageLinks.get("thumbnail").asText());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static byte[] resource(String name) {
+        try (InputStream input = CoverParsingBenchmark.class.getResourceAsStream(name)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing benchmark resource " + name);
+            }
+            return input.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package pl.booklist.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.booklist.BookListApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Load test of the web tier with request handling on platform threads, on virtual threads
+ * ({@code spring.threads.virtual.enabled}) and on the reactive stack (WebFlux on Netty with R2DBC and
+ * {@code WebClient}). Not a JMH benchmark: it starts the whole application on a random port, keeps a fixed
+ * number of requests in flight and reports the throughput and latency percentiles of {@code POST /api/books},
+ * {@code GET /api/books/my-books} and (except for the reactive mode, which has no pages) {@code GET /}.
+ * <p>
+ * {@code POST /api/books} fetches the cover right away from a local stub of Google Books which answers
+ * after a fixed delay, so every request waits for the database and for a remote HTTP call, like in production.
+ * <p>
+ * Settings (system properties): {@code clients} (1000), {@code warmup} (PT10S), {@code duration} (PT30S),
+ * {@code coverDelay} (PT0.1S), {@code books} (10000), {@code modes} (platform,virtual,reactive) and
+ * {@code maxConcurrentRequests} (0, passed to {@code booklist.web.max-concurrent-requests}).
+ * The database runs in memory (H2), reached over JDBC by the servlet modes and over R2DBC by the reactive one.
+ * The virtual mode needs Java 21 or newer; on older runtimes Spring Boot silently uses platform threads.
+ *
+ * @author Paweł Opala
+ */
+public final class HttpLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("clients", 1000);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("warmup", "PT10S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("duration", "PT30S"));
+    private static final Duration COVER_DELAY = Duration.parse(System.getProperty("coverDelay", "PT0.1S"));
+    private static final int BOOKS = Integer.getInteger("books", 10_000);
+    private static final List<String> MODES = List.of(System.getProperty("modes", "platform,virtual,reactive").split(","));
+    private static final int MAX_CONCURRENT_REQUESTS = Integer.getInteger("maxConcurrentRequests", 0);
+    private static final String REACTIVE = "reactive";
+
+    private HttpLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // devtools is on the runtime classpath; its restarter would run main a second time in a new thread
+        // and end this one with a silent exception, i.e. exit code 1
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.out.printf("Java %s, %d clients, warmup %s, measurement %s, cover delay %s%n",
+                Runtime.version(), CLIENTS, WARMUP, DURATION, COVER_DELAY);
+
+        HttpServer googleBooks = startGoogleBooksStub();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            System.out.printf("%-9s %-16s %10s %10s %10s %10s %8s%n",
+                    "mode", "endpoint", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            for (String mode : MODES) {
+                try (ConfigurableApplicationContext context = startApplication(mode, googleBooks.getAddress().getPort())) {
+                    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                    URI base = URI.create("http://localhost:" + port);
+
+                    AtomicLong sequence = new AtomicLong();
+                    LongFunction<HttpRequest> addBook = ignored -> {
+                        long n = sequence.incrementAndGet();
+                        String body = "{\"title\":\"Load test " + mode + " " + n + "\",\"author\":\"Author " + n + "\"}";
+                        return HttpRequest.newBuilder(base.resolve("/api/books"))
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                    };
+                    LongFunction<HttpRequest> ownedPage = ignored ->
+                            HttpRequest.newBuilder(base.resolve("/api/books/my-books?size=24")).GET().build();
+                    LongFunction<HttpRequest> home = ignored -> HttpRequest.newBuilder(base.resolve("/")).GET().build();
+
+                    report(mode, "POST /api/books", run(client, addBook));
+                    report(mode, "GET /my-books", run(client, ownedPage));
+                    if (!REACTIVE.equals(mode)) {
+                        report(mode, "GET /", run(client, home));
+                    }
+                }
+            }
+        } finally {
+            googleBooks.stop(0);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String mode, int googleBooksPort) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BookListApplication.class)
+                .web(REACTIVE.equals(mode) ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                        "spring.datasource.url=jdbc:h2:mem:booklist-load-" + mode + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "spring.datasource.username=sa",
+                        // the same in-memory database as the JDBC URL
+                        "spring.r2dbc.url=r2dbc:h2:mem:///booklist-load-" + mode + "?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "spring.r2dbc.username=sa",
+                        "spring.jpa.hibernate.ddl-auto=validate",
+                        "spring.flyway.locations=classpath:db/migration/{vendor}",
+                        "booklist.web.max-concurrent-requests=" + MAX_CONCURRENT_REQUESTS,
+                        "booklist.cover.async.enabled=false",
+                        "booklist.cover.cache.max-size=0",
+                        "booklist.cover.circuit-breaker.enabled=false",
+                        "booklist.cover.api-url=http://localhost:" + googleBooksPort + "/books/v1/volumes?q={query}",
+                        "booklist.cover.http.max-connections=" + CLIENTS,
+                        "booklist.cover.http.max-connections-per-route=" + CLIENTS,
+                        "booklist.cover.http.pool-timeout=30s",
+                        "booklist.cover.images.allowed-hosts=stub.invalid",
+                        "booklist.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkDatabase.insert(jdbcTemplate, BookDataGenerator.books(BOOKS));
+        // generated books have explicit ids, so books added by the test must continue after them
+        jdbcTemplate.execute("ALTER SEQUENCE book_seq RESTART WITH " + (BOOKS + 1_000));
+        return context;
+    }
+
+    /**
+     * Sends requests from the given number of clients, each sending the next request as soon as it gets
+     * the previous response, first for the warmup and then for the measured period.
+     */
+    private static Result run(HttpClient client, LongFunction<HttpRequest> requests) throws InterruptedException {
+        drive(client, requests, WARMUP, null);
+        Result result = new Result();
+        drive(client, requests, DURATION, result);
+        return result;
+    }
+
+    private static void drive(HttpClient client, LongFunction<HttpRequest> requests, Duration duration, Result result)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CLIENTS);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long n = 0; System.nanoTime() < end; n++) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(requests.apply(n), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (result != null) {
+                            result.record(System.nanoTime() - sent, error == null && response.statusCode() < 400);
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(CLIENTS);
+        if (result != null) {
+            result.elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    private static void report(String mode, String endpoint, Result result) {
+        long[] latencies = result.sortedLatencies();
+        System.out.printf("%-9s %-16s %10.0f %10.1f %10.1f %10.1f %8d%n",
+                mode, endpoint,
+                latencies.length / (result.elapsedNanos / 1e9),
+                percentile(latencies, 0.50) / 1e6,
+                percentile(latencies, 0.99) / 1e6,
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6,
+                result.errors.get());
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * Answers every search with the same volume after {@link #COVER_DELAY}, like a slow Google Books.
+     */
+    private static HttpServer startGoogleBooksStub() throws IOException {
+        byte[] volume;
+        try (InputStream in = HttpLoadTest.class.getResourceAsStream("/benchmark/google-books-volume.json")) {
+            volume = in.readAllBytes();
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), CLIENTS);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/books/v1/volumes", exchange -> {
+            try (exchange) {
+                Thread.sleep(COVER_DELAY.toMillis());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, volume.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(volume);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Latencies of the successful requests and the number of failed ones.
+     */
+    private static final class Result {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int size;
+        private long elapsedNanos;
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (!success) {
+                errors.incrementAndGet();
+                return;
+            }
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -2,8 +2,14 @@ package pl.booklist;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+/**
+ * R2DBC is configured by {@code pl.booklist.config.ReactiveConfig} and only for the reactive web stack,
+ * so the servlet stack keeps a single (JPA) transaction manager.
+ */
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class BookListApplication {
 
 	public static void main(String[] args) {
@@ -1,14 +1,105 @@
 package pl.booklist.config;
 
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties(BookListProperties.class)
 public class AppConfig {
 
+    /**
+     * Pool of keep-alive connections to Google Books, limited per route, see {@code booklist.cover.http.*}.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public PoolingHttpClientConnectionManager coverConnectionManager(BookListProperties properties) {
+        BookListProperties.Cover.Http http = properties.getCover().getHttp();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxConnections())
+                .setMaxConnPerRoute(http.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(http.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(http.getReadTimeout()))
+                        .setTimeToLive(TimeValue.of(http.getConnectionTtl()))
+                        .build())
+                .build();
     }
-}
\ No newline at end of file
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient coverHttpClient(PoolingHttpClientConnectionManager coverConnectionManager,
+                                               BookListProperties properties) {
+        BookListProperties.Cover.Http http = properties.getCover().getHttp();
+        return HttpClients.custom()
+                .setConnectionManager(coverConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(http.getPoolTimeout()))
+                        .setResponseTimeout(Timeout.of(http.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(http.getIdleTimeout()))
+                .build();
+    }
+
+    /**
+     * Exposes the state of the connection pool as {@code httpcomponents.httpclient.pool.*} metrics.
+     */
+    @Bean
+    public MeterBinder coverConnectionPoolMetrics(PoolingHttpClientConnectionManager coverConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(coverConnectionManager, "google-books");
+    }
+
+    /**
+     * Built with {@link RestTemplateBuilder}, so calls are recorded as {@code http.client.requests} metrics.
+     * URI variables are fully encoded, which lets callers pass titles and authors as variables
+     * and keeps the metrics tagged with the URI template instead of every query.
+     * Spring Boot has no builder on the reactive stack, where the covers are fetched with a WebClient anyway.
+     */
+    @Bean
+    public RestTemplate restTemplate(ObjectProvider<RestTemplateBuilder> builder, CloseableHttpClient coverHttpClient) {
+        DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+        uriBuilderFactory.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.TEMPLATE_AND_VALUES);
+        return builder.getIfAvailable(RestTemplateBuilder::new)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(coverHttpClient))
+                .uriTemplateHandler(uriBuilderFactory)
+                .build();
+    }
+
+    /**
+     * Limits the requests handled at once, which matters mostly with virtual threads, see {@link ConcurrencyLimitFilter}.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ConcurrencyLimitFilter concurrencyLimitFilter(BookListProperties properties,
+                                                         @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return new ConcurrencyLimitFilter(properties, virtualThreads);
+    }
+
+    /**
+     * Records methods annotated with {@link io.micrometer.core.annotation.Timed} as timers.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
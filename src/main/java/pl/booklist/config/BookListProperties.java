@@ -0,0 +1,916 @@
+package pl.booklist.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application specific settings bound from the {@code booklist.*} properties.
+ * Groups tuning options of the BookList application, so they can be adjusted
+ * per environment without touching the code.
+ *
+ * @author Paweł Opala
+ */
+@ConfigurationProperties(prefix = "booklist")
+public class BookListProperties {
+
+    private final Pagination pagination = new Pagination();
+    private final Cover cover = new Cover();
+    private final Import bookImport = new Import();
+    private final Cache cache = new Cache();
+    private final Web web = new Web();
+    private final Delete delete = new Delete();
+    private final Feed feed = new Feed();
+    private final Replicas replicas = new Replicas();
+    private final Export export = new Export();
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Cover getCover() {
+        return cover;
+    }
+
+    public Import getImport() {
+        return bookImport;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Web getWeb() {
+        return web;
+    }
+
+    public Delete getDelete() {
+        return delete;
+    }
+
+    public Feed getFeed() {
+        return feed;
+    }
+
+    public Replicas getReplicas() {
+        return replicas;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    /**
+     * Settings of the cursor (keyset) pagination used by the list endpoints.
+     */
+    public static class Pagination {
+
+        /**
+         * Page size used when the client does not ask for a specific one.
+         */
+        private int defaultSize = 100;
+
+        /**
+         * Upper bound of the page size a client can request.
+         */
+        private int maxSize = 1000;
+
+        /**
+         * Number of books shown in each section of the home page before "show more" is used.
+         */
+        private int sectionSize = 24;
+
+        public int getDefaultSize() {
+            return defaultSize;
+        }
+
+        public void setDefaultSize(int defaultSize) {
+            this.defaultSize = defaultSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getSectionSize() {
+            return sectionSize;
+        }
+
+        public void setSectionSize(int sectionSize) {
+            this.sectionSize = sectionSize;
+        }
+
+        /**
+         * Resolves the page size requested by the client against the configured limits.
+         *
+         * @param requested page size sent by the client, may be null
+         * @return page size between 1 and {@link #getMaxSize()}
+         */
+        public int resolveSize(Integer requested) {
+            if (requested == null || requested < 1) {
+                return Math.min(defaultSize, maxSize);
+            }
+            return Math.min(requested, maxSize);
+        }
+    }
+
+    /**
+     * Settings of the book cover lookup.
+     */
+    public static class Cover {
+
+        /**
+         * Google Books search URL; {@code {query}} is replaced with the title and the author of the book.
+         * The {@code fields} parameter limits the response to the thumbnail of the volume.
+         */
+        private String apiUrl = "https://www.googleapis.com/books/v1/volumes?q={query}&maxResults=1&fields=items(volumeInfo/imageLinks/thumbnail)";
+
+        private final Async async = new Async();
+        private final Cache cache = new Cache();
+        private final Http http = new Http();
+        private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private final Images images = new Images();
+
+        public String getApiUrl() {
+            return apiUrl;
+        }
+
+        public void setApiUrl(String apiUrl) {
+            this.apiUrl = apiUrl;
+        }
+
+        public Async getAsync() {
+            return async;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public Http getHttp() {
+            return http;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public Images getImages() {
+            return images;
+        }
+
+        /**
+         * Settings of the local store of cover images served by the cover proxy.
+         */
+        public static class Images {
+
+            /**
+             * Directory of the stored images and their resized variants.
+             */
+            private Path directory = Path.of("data", "covers");
+
+            /**
+             * Hosts whose images are downloaded and served locally; other covers are loaded by the browser directly.
+             */
+            private List<String> allowedHosts = new ArrayList<>(List.of("books.google.com", "books.googleusercontent.com"));
+
+            /**
+             * Widths of the resized variants; a requested width is rounded up to the nearest one.
+             */
+            private List<Integer> widths = new ArrayList<>(List.of(160, 320));
+
+            /**
+             * Largest image which is downloaded.
+             */
+            private DataSize maxSize = DataSize.ofMegabytes(2);
+
+            /**
+             * How long browsers may use a served image without asking again.
+             */
+            private Duration maxAge = Duration.ofDays(1);
+
+            /**
+             * Number of threads downloading images in the background.
+             */
+            private int downloadThreads = 2;
+
+            public Path getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(Path directory) {
+                this.directory = directory;
+            }
+
+            public List<String> getAllowedHosts() {
+                return allowedHosts;
+            }
+
+            public void setAllowedHosts(List<String> allowedHosts) {
+                this.allowedHosts = allowedHosts;
+            }
+
+            public List<Integer> getWidths() {
+                return widths;
+            }
+
+            public void setWidths(List<Integer> widths) {
+                this.widths = widths;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public Duration getMaxAge() {
+                return maxAge;
+            }
+
+            public void setMaxAge(Duration maxAge) {
+                this.maxAge = maxAge;
+            }
+
+            public int getDownloadThreads() {
+                return downloadThreads;
+            }
+
+            public void setDownloadThreads(int downloadThreads) {
+                this.downloadThreads = downloadThreads;
+            }
+        }
+
+        /**
+         * Settings of the pooled HTTP client calling Google Books.
+         */
+        public static class Http {
+
+            /**
+             * Maximum time to establish a connection.
+             */
+            private Duration connectTimeout = Duration.ofSeconds(2);
+
+            /**
+             * Maximum time to wait for the response (and between packets of the response).
+             */
+            private Duration readTimeout = Duration.ofSeconds(5);
+
+            /**
+             * Maximum time to wait for a free connection from the pool.
+             */
+            private Duration poolTimeout = Duration.ofSeconds(1);
+
+            /**
+             * Maximum number of open connections.
+             */
+            private int maxConnections = 32;
+
+            /**
+             * Maximum number of open connections to a single host.
+             */
+            private int maxConnectionsPerRoute = 16;
+
+            /**
+             * Connections idle for longer are closed.
+             */
+            private Duration idleTimeout = Duration.ofSeconds(30);
+
+            /**
+             * Connections are not reused after this time, so DNS changes are picked up.
+             */
+            private Duration connectionTtl = Duration.ofMinutes(5);
+
+            public Duration getConnectTimeout() {
+                return connectTimeout;
+            }
+
+            public void setConnectTimeout(Duration connectTimeout) {
+                this.connectTimeout = connectTimeout;
+            }
+
+            public Duration getReadTimeout() {
+                return readTimeout;
+            }
+
+            public void setReadTimeout(Duration readTimeout) {
+                this.readTimeout = readTimeout;
+            }
+
+            public Duration getPoolTimeout() {
+                return poolTimeout;
+            }
+
+            public void setPoolTimeout(Duration poolTimeout) {
+                this.poolTimeout = poolTimeout;
+            }
+
+            public int getMaxConnections() {
+                return maxConnections;
+            }
+
+            public void setMaxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+            }
+
+            public int getMaxConnectionsPerRoute() {
+                return maxConnectionsPerRoute;
+            }
+
+            public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+                this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            }
+
+            public Duration getIdleTimeout() {
+                return idleTimeout;
+            }
+
+            public void setIdleTimeout(Duration idleTimeout) {
+                this.idleTimeout = idleTimeout;
+            }
+
+            public Duration getConnectionTtl() {
+                return connectionTtl;
+            }
+
+            public void setConnectionTtl(Duration connectionTtl) {
+                this.connectionTtl = connectionTtl;
+            }
+        }
+
+        /**
+         * Settings of the circuit breaker which stops calling Google Books while it keeps failing.
+         */
+        public static class CircuitBreaker {
+
+            private boolean enabled = true;
+
+            /**
+             * Number of consecutive failed calls which opens the circuit.
+             */
+            private int failureThreshold = 5;
+
+            /**
+             * How long calls are skipped once the circuit is open, before a single trial call is let through.
+             */
+            private Duration openDuration = Duration.ofSeconds(30);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getFailureThreshold() {
+                return failureThreshold;
+            }
+
+            public void setFailureThreshold(int failureThreshold) {
+                this.failureThreshold = failureThreshold;
+            }
+
+            public Duration getOpenDuration() {
+                return openDuration;
+            }
+
+            public void setOpenDuration(Duration openDuration) {
+                this.openDuration = openDuration;
+            }
+        }
+
+        /**
+         * Settings of the cover lookup cache, keyed on the normalized title and author.
+         */
+        public static class Cache {
+
+            /**
+             * Maximum number of cover lookups kept in memory.
+             */
+            private long maxSize = 10_000;
+
+            /**
+             * How long a found cover is kept.
+             */
+            private Duration ttl = Duration.ofDays(7);
+
+            /**
+             * How long a lookup which found no cover is kept, so it is not repeated on every add.
+             */
+            private Duration negativeTtl = Duration.ofHours(6);
+
+            /**
+             * Whether lookups are also stored in the database, so the cache survives restarts.
+             */
+            private boolean persistent = false;
+
+            public long getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(long maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public Duration getTtl() {
+                return ttl;
+            }
+
+            public void setTtl(Duration ttl) {
+                this.ttl = ttl;
+            }
+
+            public Duration getNegativeTtl() {
+                return negativeTtl;
+            }
+
+            public void setNegativeTtl(Duration negativeTtl) {
+                this.negativeTtl = negativeTtl;
+            }
+
+            public boolean isPersistent() {
+                return persistent;
+            }
+
+            public void setPersistent(boolean persistent) {
+                this.persistent = persistent;
+            }
+        }
+
+        /**
+         * Settings of the background cover resolution. When disabled, covers are fetched
+         * synchronously while the book is being added.
+         */
+        public static class Async {
+
+            private boolean enabled = true;
+
+            /**
+             * Number of threads resolving covers.
+             */
+            private int workers = 4;
+
+            /**
+             * Maximum number of covers waiting to be resolved.
+             */
+            private int queueCapacity = 10_000;
+
+            /**
+             * Number of lookups of a single cover before the default cover is used.
+             */
+            private int maxAttempts = 5;
+
+            /**
+             * Delay before the first retry, doubled with every next attempt.
+             */
+            private Duration initialBackoff = Duration.ofSeconds(2);
+
+            /**
+             * Upper bound of the delay between retries.
+             */
+            private Duration maxBackoff = Duration.ofMinutes(5);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getWorkers() {
+                return workers;
+            }
+
+            public void setWorkers(int workers) {
+                this.workers = workers;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public Duration getInitialBackoff() {
+                return initialBackoff;
+            }
+
+            public void setInitialBackoff(Duration initialBackoff) {
+                this.initialBackoff = initialBackoff;
+            }
+
+            public Duration getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            public void setMaxBackoff(Duration maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+        }
+    }
+
+    /**
+     * Settings of the bulk book import.
+     */
+    public static class Import {
+
+        /**
+         * Number of books saved in a single transaction.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Number of covers fetched in parallel when background cover resolution is disabled.
+         */
+        private int coverParallelism = 8;
+
+        /**
+         * Maximum number of row errors included in the import report.
+         */
+        private int maxReportedErrors = 1000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getCoverParallelism() {
+            return coverParallelism;
+        }
+
+        public void setCoverParallelism(int coverParallelism) {
+            this.coverParallelism = coverParallelism;
+        }
+
+        public int getMaxReportedErrors() {
+            return maxReportedErrors;
+        }
+
+        public void setMaxReportedErrors(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+    }
+
+    /**
+     * Settings of the read-through cache of the book lists.
+     */
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached lists (every page and query is a separate entry).
+         */
+        private long maxSize = 500;
+
+        /**
+         * How long a list is kept in the cache.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * How often the shared catalog version is re-read, i.e. the longest time
+         * a change made by another instance can stay unnoticed. Zero checks it on every read.
+         */
+        private Duration versionCheckInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getVersionCheckInterval() {
+            return versionCheckInterval;
+        }
+
+        public void setVersionCheckInterval(Duration versionCheckInterval) {
+            this.versionCheckInterval = versionCheckInterval;
+        }
+    }
+
+    /**
+     * Settings of deleting books. Soft-deleted books are only marked with a tombstone, which hides them
+     * from every query, and are removed later by the purge in small chunks.
+     */
+    public static class Delete {
+
+        /**
+         * Mark deleted books instead of deleting their rows at once.
+         */
+        private boolean soft = false;
+
+        /**
+         * How long tombstones are kept before they are purged.
+         */
+        private Duration retention = Duration.ofDays(1);
+
+        /**
+         * Number of tombstones removed in a single transaction of the purge.
+         */
+        private int purgeChunkSize = 1000;
+
+        /**
+         * Maximum number of chunks removed in a single run of the purge; the rest waits for the next run.
+         */
+        private int purgeMaxChunks = 100;
+
+        public boolean isSoft() {
+            return soft;
+        }
+
+        public void setSoft(boolean soft) {
+            this.soft = soft;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public int getPurgeChunkSize() {
+            return purgeChunkSize;
+        }
+
+        public void setPurgeChunkSize(int purgeChunkSize) {
+            this.purgeChunkSize = purgeChunkSize;
+        }
+
+        public int getPurgeMaxChunks() {
+            return purgeMaxChunks;
+        }
+
+        public void setPurgeMaxChunks(int purgeMaxChunks) {
+            this.purgeMaxChunks = purgeMaxChunks;
+        }
+    }
+
+    /**
+     * Guardrails of the web tier. With virtual threads ({@code spring.threads.virtual.enabled=true}) Tomcat
+     * no longer caps the number of requests handled at once, so the cap is applied here instead,
+     * before the requests start waiting for a JDBC connection.
+     */
+    public static class Web {
+
+        /**
+         * Maximum number of requests handled at the same time; 0 leaves the limit to the Tomcat thread pool.
+         */
+        private int maxConcurrentRequests = 0;
+
+        /**
+         * How long a request over the limit waits for a free slot before it gets 503 Service Unavailable.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(2);
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+    }
+
+    /**
+     * Settings of the Server-Sent Events feed of book changes ({@code GET /api/books/changes}).
+     */
+    public static class Feed {
+
+        /**
+         * Number of recent changes kept for subscribers resuming with {@code Last-Event-ID}.
+         */
+        private int history = 1000;
+
+        /**
+         * Changes waiting to be sent to a single subscriber; a subscriber falling further behind is disconnected.
+         */
+        private int subscriberBuffer = 256;
+
+        /**
+         * Maximum number of connected subscribers; more get 503 Service Unavailable.
+         */
+        private int maxSubscribers = 10_000;
+
+        /**
+         * Threads writing the changes to the subscribers.
+         */
+        private int senders = 2;
+
+        /**
+         * Time after which a subscription is closed and the client has to reconnect.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+
+        public int getHistory() {
+            return history;
+        }
+
+        public void setHistory(int history) {
+            this.history = history;
+        }
+
+        public int getSubscriberBuffer() {
+            return subscriberBuffer;
+        }
+
+        public void setSubscriberBuffer(int subscriberBuffer) {
+            this.subscriberBuffer = subscriberBuffer;
+        }
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public int getSenders() {
+            return senders;
+        }
+
+        public void setSenders(int senders) {
+            this.senders = senders;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * Read replicas of the database. Read-only transactions go to a healthy replica,
+     * everything else to the primary ({@code spring.datasource.*}).
+     */
+    public static class Replicas {
+
+        /**
+         * Route read-only transactions to the replicas.
+         */
+        private boolean enabled = false;
+
+        /**
+         * JDBC URLs of the replicas.
+         */
+        private List<String> urls = new ArrayList<>();
+
+        /**
+         * User of the replicas; the user of the primary when not set.
+         */
+        private String username;
+
+        /**
+         * Password of the replicas; the password of the primary when not set.
+         */
+        private String password;
+
+        /**
+         * Maximum number of connections to each replica.
+         */
+        private int poolSize = 10;
+
+        /**
+         * Replicas further behind the primary are skipped until they catch up.
+         */
+        private Duration maxLag = Duration.ofSeconds(5);
+
+        /**
+         * Time after which the health check of a replica fails.
+         */
+        private Duration checkTimeout = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getUrls() {
+            return urls;
+        }
+
+        public void setUrls(List<String> urls) {
+            this.urls = urls;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public Duration getMaxLag() {
+            return maxLag;
+        }
+
+        public void setMaxLag(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        public Duration getCheckTimeout() {
+            return checkTimeout;
+        }
+
+        public void setCheckTimeout(Duration checkTimeout) {
+            this.checkTimeout = checkTimeout;
+        }
+    }
+
+    /**
+     * Settings of the export of the collection ({@code GET /api/books/export}).
+     */
+    public static class Export {
+
+        /**
+         * Rows fetched from the database cursor at a time. MySQL uses a server-side cursor only with
+         * {@code useCursorFetch=true} in the JDBC URL; without it the whole result is read into memory.
+         */
+        private int fetchSize = 1000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package pl.booklist.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the number of requests handled at the same time, see {@code booklist.web.*}.
+ * Requests over the cap wait for a free slot for at most the queue timeout and then get
+ * 503 Service Unavailable with {@code Retry-After}, instead of piling up on the JDBC connection pool.
+ * An asynchronous request (streamed lists, the export) keeps its slot until the async processing completes,
+ * not only for the first dispatch.
+ * Static resources, Actuator endpoints and the change feed are not limited; subscribers of the feed stay
+ * connected for long and are capped by {@code booklist.feed.max-subscribers} instead.
+ *
+ * @author Paweł Opala
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final int maxConcurrentRequests;
+    private final long queueTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param properties     settings of the limit
+     * @param virtualThreads whether requests are handled on virtual threads, i.e. without the cap
+     *                       of the Tomcat thread pool
+     */
+    public ConcurrencyLimitFilter(BookListProperties properties, boolean virtualThreads) {
+        BookListProperties.Web web = properties.getWeb();
+        this.maxConcurrentRequests = web.getMaxConcurrentRequests();
+        this.queueTimeoutNanos = web.getQueueTimeout().toNanos();
+        this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+        if (virtualThreads && permits == null) {
+            logger.warn("Żądania są obsługiwane przez wątki wirtualne bez limitu równoczesnych żądań; "
+                    + "ustaw booklist.web.max-concurrent-requests, aby nie przeciążyć puli połączeń JDBC.");
+        }
+    }
+
+    public boolean isEnabled() {
+        return permits != null;
+    }
+
+    public int getActiveRequests() {
+        return isEnabled() ? maxConcurrentRequests - permits.availablePermits() : 0;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booklist.web.requests.active", this, ConcurrencyLimitFilter::getActiveRequests)
+                .description("Requests holding a slot of the concurrency limit")
+                .register(registry);
+        FunctionCounter.builder("booklist.web.requests.rejected", rejectedCount, AtomicLong::get)
+                .description("Requests rejected with 503 because the concurrency limit was reached")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!isEnabled()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/css/") || path.startsWith("/images/") || path.startsWith("/actuator/")
+                || path.equals("/api/books/changes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            rejectedCount.incrementAndGet();
+            logger.debug("Odrzucono żądanie {} {}: osiągnięto limit {} równoczesnych żądań.",
+                    request.getMethod(), request.getRequestURI(), maxConcurrentRequests);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of an asynchronous request once it is done, however it ends.
+     */
+    private final class ReleasingListener implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // a new async cycle of the same request, e.g. after an error dispatch; keep listening
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package pl.booklist.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.netty.channel.ChannelOption;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Beans of the non-blocking variant of the book API, created only when the application runs on the reactive
+ * web stack ({@code spring.main.web-application-type=reactive}, see {@code application-reactive.properties}).
+ * Books are read and written over R2DBC ({@code spring.r2dbc.*}); the schema is still migrated by Flyway
+ * over JDBC. Covers are fetched with a {@link WebClient} sharing the settings of {@code booklist.cover.http.*}.
+ *
+ * @author Paweł Opala
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties({R2dbcProperties.class, DataSourceProperties.class})
+public class ReactiveConfig {
+
+    /**
+     * Pool of {@code spring.datasource.*} for Flyway and JPA. Spring Boot backs off from its own data source
+     * as soon as there is an R2DBC connection factory; with replicas {@link ReplicaRoutingConfig} creates it.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "booklist.replicas", name = "enabled", havingValue = "false", matchIfMissing = true)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(R2dbcProperties properties) {
+        if (!StringUtils.hasText(properties.getUrl())) {
+            throw new IllegalStateException("Reaktywne API wymaga ustawienia spring.r2dbc.url.");
+        }
+        ConnectionFactoryBuilder builder = ConnectionFactoryBuilder.withUrl(properties.getUrl());
+        // the builder rejects null, e.g. the empty password of the embedded database
+        if (properties.getUsername() != null) {
+            builder.username(properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            builder.password(properties.getPassword());
+        }
+        ConnectionFactory connectionFactory = builder.build();
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("booklist")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxAcquireTime() != null) {
+            configuration.maxAcquireTime(pool.getMaxAcquireTime());
+        }
+        return new ConnectionPool(configuration.build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Pool of keep-alive connections to Google Books, the non-blocking counterpart of
+     * {@code AppConfig#coverConnectionManager}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider coverConnectionProvider(BookListProperties properties) {
+        BookListProperties.Cover.Http http = properties.getCover().getHttp();
+        return ConnectionProvider.builder("google-books")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireTimeout(http.getPoolTimeout())
+                .maxIdleTime(http.getIdleTimeout())
+                .maxLifeTime(http.getConnectionTtl())
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Built from the {@link WebClient.Builder} of Spring Boot, so calls are recorded as {@code http.client.requests}
+     * metrics. URI variables are fully encoded, like in {@code AppConfig#restTemplate}.
+     */
+    @Bean
+    public WebClient coverWebClient(WebClient.Builder builder, ConnectionProvider coverConnectionProvider,
+                                    BookListProperties properties) {
+        BookListProperties.Cover.Http http = properties.getCover().getHttp();
+        HttpClient httpClient = HttpClient.create(coverConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getReadTimeout());
+        DefaultUriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+        uriBuilderFactory.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.TEMPLATE_AND_VALUES);
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .uriBuilderFactory(uriBuilderFactory)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package pl.booklist.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the read replicas ({@code booklist.replicas.*}) and everything else to the
+ * primary ({@code spring.datasource.*}). Replaces the data source of Spring Boot, so Flyway, JPA and JDBC all
+ * use the routing one.
+ * <p>
+ * The routing data source is a {@link LazyConnectionDataSourceProxy}: the physical connection is taken only
+ * at the first statement, after the transaction manager has marked the connection read-only, and then comes
+ * from {@link ReplicaRoutingDataSource} for read-only transactions. Schema migrations and writes always run
+ * on the primary; the replicas get them through replication.
+ *
+ * @author Paweł Opala
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "booklist.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    /**
+     * Pool of the primary, configured by {@code spring.datasource.*} like the data source of Spring Boot.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             BookListProperties properties) {
+        BookListProperties.Replicas settings = properties.getReplicas();
+        List<String> urls = settings.getUrls();
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("Odczyty z replik wymagają ustawienia booklist.replicas.urls.");
+        }
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(settings.getUsername() != null
+                    ? settings.getUsername() : dataSourceProperties.determineUsername());
+            replica.setPassword(settings.getPassword() != null
+                    ? settings.getPassword() : dataSourceProperties.determinePassword());
+            replica.setMaximumPoolSize(settings.getPoolSize());
+            replica.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, settings);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,176 @@
+package pl.booklist.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connections of read-only transactions: hands out connections of the healthy replicas in turn, and of the
+ * primary when no replica is healthy. Used as the read-only data source of the lazy connection proxy set up
+ * by {@link ReplicaRoutingConfig}, so transactions which are not read-only never get here.
+ * <p>
+ * Every check writes the current time to {@code replication_heartbeat} on the primary and reads it back from
+ * each replica; the age of the value seen by a replica is its replication lag. Replicas whose check fails
+ * or which lag more than {@code booklist.replicas.max-lag} are skipped until a later check passes.
+ * Replicas start as unhealthy, so reads go to the primary until the first check.
+ *
+ * @author Paweł Opala
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final int HEARTBEAT_ID = 1;
+
+    private final JdbcTemplate primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong replicaReadCount = new AtomicLong();
+    private final AtomicLong primaryReadCount = new AtomicLong();
+
+    /**
+     * @param primary  the primary database, used when no replica is healthy
+     * @param replicas the replicas by their names, closed together with this data source
+     * @param settings settings of the replicas
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    BookListProperties.Replicas settings) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+
+        int timeoutSeconds = (int) Math.max(settings.getCheckTimeout().toSeconds(), 1);
+        this.primary = new JdbcTemplate(primary);
+        this.primary.setQueryTimeout(timeoutSeconds);
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue(), timeoutSeconds))
+                .toList();
+        this.maxLagMillis = settings.getMaxLag().toMillis();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        int size = replicas.size();
+        int first = size == 0 ? 0 : Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((first + i) % size);
+            if (replica.healthy) {
+                replicaReadCount.incrementAndGet();
+                return replica.name;
+            }
+        }
+        primaryReadCount.incrementAndGet();
+        return PRIMARY;
+    }
+
+    /**
+     * Writes the heartbeat to the primary and checks the health and the lag of every replica.
+     */
+    @Scheduled(fixedDelayString = "${booklist.replicas.check-interval:PT2S}")
+    public void checkReplicas() {
+        try {
+            primary.update("UPDATE replication_heartbeat SET beat_millis = ? WHERE id = ?",
+                    System.currentTimeMillis(), HEARTBEAT_ID);
+        } catch (DataAccessException e) {
+            // the replicas keep the old heartbeat, so they are skipped once they seem to lag behind
+            logger.warn("Nie udało się zapisać znacznika replikacji na serwerze głównym.", e);
+        }
+        replicas.forEach(this::check);
+    }
+
+    /**
+     * @return number of replicas which passed the last check
+     */
+    public int getHealthyReplicaCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booklist.replicas.healthy", this, ReplicaRoutingDataSource::getHealthyReplicaCount)
+                .description("Read replicas which passed the last health check")
+                .register(registry);
+        for (Replica replica : replicas) {
+            Gauge.builder("booklist.replicas.lag", replica, r -> r.lagMillis / 1000.0)
+                    .description("Replication lag measured by the last health check")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+        FunctionCounter.builder("booklist.replicas.reads", replicaReadCount, AtomicLong::get)
+                .description("Connections of read-only transactions")
+                .tag("target", "replica")
+                .register(registry);
+        FunctionCounter.builder("booklist.replicas.reads", primaryReadCount, AtomicLong::get)
+                .description("Connections of read-only transactions")
+                .tag("target", PRIMARY)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private void check(Replica replica) {
+        boolean healthy;
+        try {
+            Long beatMillis = replica.jdbcTemplate.queryForObject(
+                    "SELECT beat_millis FROM replication_heartbeat WHERE id = ?", Long.class, HEARTBEAT_ID);
+            replica.lagMillis = Math.max(System.currentTimeMillis() - (beatMillis == null ? 0 : beatMillis), 0);
+            healthy = replica.lagMillis <= maxLagMillis;
+            if (!healthy && replica.healthy) {
+                logger.warn("Replika {} jest opóźniona o {} ms, odczyty trafią do innych serwerów.",
+                        replica.name, replica.lagMillis);
+            }
+        } catch (DataAccessException e) {
+            healthy = false;
+            if (replica.healthy) {
+                logger.warn("Replika {} nie odpowiada, odczyty trafią do innych serwerów.", replica.name, e);
+            }
+        }
+        if (healthy && !replica.healthy) {
+            logger.info("Replika {} obsługuje odczyty (opóźnienie {} ms).", replica.name, replica.lagMillis);
+        }
+        replica.healthy = healthy;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile boolean healthy;
+        private volatile long lagMillis;
+
+        private Replica(String name, DataSource dataSource, int timeoutSeconds) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.jdbcTemplate.setQueryTimeout(timeoutSeconds);
+        }
+    }
+}
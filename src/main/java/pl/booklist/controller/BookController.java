@@ -1,60 +1,221 @@
 package pl.booklist.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.booklist.config.BookListProperties;
 import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookExportFormat;
+import pl.booklist.dto.BookImportResultDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.service.BookChangeFeed;
+import pl.booklist.service.BookExportService;
+import pl.booklist.service.BookImportService;
 import pl.booklist.service.BookService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for handling book-related HTTP requests.
  * Provides endpoints for retrieving book data.
  * Uses {@link BookService} to access book DTOs.
+ * <p>
+ * List endpoints are paginated with a cursor: the id of the last book of a page is returned
+ * in the {@value #NEXT_CURSOR_HEADER} header and should be passed as {@code after} to get the next page.
+ * Each list is also available as a NDJSON stream under the {@code /stream} sub path,
+ * and the whole collection as a CSV or NDJSON file under {@code /export}.
+ * List responses carry an ETag of the catalog version; conditional requests ({@code If-None-Match})
+ * for an unchanged catalog get 304 Not Modified without querying the books.
+ * Instead of polling the lists, clients can subscribe to the changes as Server-Sent Events under {@code /changes}.
  *
  * @author Paweł
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/books")
 @Validated
 public class BookController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    // the events carry titles and authors, so they must not fall back to ISO-8859-1
+    private static final MediaType EVENT_STREAM = new MediaType(MediaType.TEXT_EVENT_STREAM, StandardCharsets.UTF_8);
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final BookChangeFeed bookChangeFeed;
+    private final BookListProperties properties;
+    private final ObjectWriter ndjsonWriter;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookImportService bookImportService,
+                          BookExportService bookExportService, BookChangeFeed bookChangeFeed,
+                          BookListProperties properties, ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.bookChangeFeed = bookChangeFeed;
+        this.properties = properties;
+        this.ndjsonWriter = objectMapper.writerFor(BookDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     /**
-     * Handles GET request to retrieve all books.
-     * @return a list of all {@link BookDTO} objects.
+     * Handles GET request to retrieve a page of all books.
+     * @param after id of the last book of the previous page.
+     * @param size requested page size, limited by the configuration.
+     * @param request used to answer conditional requests.
+     * @return a page of {@link BookDTO} objects.
      */
     @GetMapping("/showAllBooks")
-    public List<BookDTO> getAllBooks() {
-        return bookService.findAllBooks();
+    public ResponseEntity<List<BookDTO>> getAllBooks(@RequestParam(defaultValue = "0") long after,
+                                                     @RequestParam(required = false) Integer size,
+                                                     WebRequest request) {
+        if (request.checkNotModified(bookService.getListETag())) {
+            return null;
+        }
+        return toResponse(bookService.findBooksPage(null, after, properties.getPagination().resolveSize(size)));
     }
 
     /**
-     * Handles GET request to retrieve all books marked as owned by the user.
-     * @return a list of owned {@link BookDTO} objects.
+     * Handles GET request to retrieve a page of books marked as owned by the user.
+     * @param after id of the last book of the previous page.
+     * @param size requested page size, limited by the configuration.
+     * @param request used to answer conditional requests.
+     * @return a page of owned {@link BookDTO} objects.
      */
     @GetMapping("/my-books")
-    public List<BookDTO> getOwnedBooks() {
-        return bookService.findOwnedBooks();
+    public ResponseEntity<List<BookDTO>> getOwnedBooks(@RequestParam(defaultValue = "0") long after,
+                                                       @RequestParam(required = false) Integer size,
+                                                       WebRequest request) {
+        if (request.checkNotModified(bookService.getListETag())) {
+            return null;
+        }
+        return toResponse(bookService.findBooksPage(true, after, properties.getPagination().resolveSize(size)));
     }
 
     /**
-     * Handles GET request to retrieve all books that are not marked as owned by the user.
-     * @return a list of unowned {@link BookDTO} objects.
+     * Handles GET request to retrieve a page of books that are not marked as owned by the user.
+     * @param after id of the last book of the previous page.
+     * @param size requested page size, limited by the configuration.
+     * @param request used to answer conditional requests.
+     * @return a page of unowned {@link BookDTO} objects.
      */
     @GetMapping("/wishlist")
-    public List<BookDTO> getUnownedBooks() {
-        return bookService.findUnownedBooks();
+    public ResponseEntity<List<BookDTO>> getUnownedBooks(@RequestParam(defaultValue = "0") long after,
+                                                         @RequestParam(required = false) Integer size,
+                                                         WebRequest request) {
+        if (request.checkNotModified(bookService.getListETag())) {
+            return null;
+        }
+        return toResponse(bookService.findBooksPage(false, after, properties.getPagination().resolveSize(size)));
     }
 
+    /**
+     * Handles GET request searching books by the words of their title and author.
+     * Words are matched as prefixes, ignoring case and Polish diacritics.
+     * @param q words to look for.
+     * @param owned optional ownership status of the books.
+     * @param size requested number of results, limited by the configuration.
+     * @return matching {@link BookDTO} objects.
+     */
+    @GetMapping("/search")
+    public List<BookDTO> searchBooks(@RequestParam String q,
+                                     @RequestParam(required = false) Boolean owned,
+                                     @RequestParam(required = false) Integer size) {
+        return bookService.searchBooks(q, owned, properties.getPagination().resolveSize(size));
+    }
 
+    /**
+     * Handles GET request to stream all books as NDJSON (one JSON object per line).
+     * @return streamed body with all {@link BookDTO} objects.
+     */
+    @GetMapping("/showAllBooks/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        return toStream(null);
+    }
+
+    /**
+     * Handles GET request to stream owned books as NDJSON (one JSON object per line).
+     * @return streamed body with owned {@link BookDTO} objects.
+     */
+    @GetMapping("/my-books/stream")
+    public ResponseEntity<StreamingResponseBody> streamOwnedBooks() {
+        return toStream(true);
+    }
+
+    /**
+     * Handles GET request to stream unowned books as NDJSON (one JSON object per line).
+     * @return streamed body with unowned {@link BookDTO} objects.
+     */
+    @GetMapping("/wishlist/stream")
+    public ResponseEntity<StreamingResponseBody> streamUnownedBooks() {
+        return toStream(false);
+    }
+
+    /**
+     * Handles GET request exporting the collection, e.g. for a backup. The rows are streamed straight from
+     * the database, so the export of any number of books uses the same amount of memory.
+     * @param format {@code csv} (the format of the CSV import, with the id first) or {@code ndjson}.
+     * @param owned ownership status of the exported books; all books when not given.
+     * @param gzip whether to send the export as a gzipped file.
+     * @return streamed export, downloaded as {@code books.<format>} or {@code books.<format>.gz}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format,
+                                                             @RequestParam(required = false) Boolean owned,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        BookExportFormat exportFormat = BookExportFormat.fromParam(format);
+        ContentDisposition file = ContentDisposition.attachment()
+                .filename("books." + exportFormat.getParam() + (gzip ? ".gz" : ""))
+                .build();
+        StreamingResponseBody body = outputStream -> bookExportService.export(exportFormat, owned, gzip, outputStream);
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, file.toString())
+                .body(body);
+    }
+
+    /**
+     * Handles GET request subscribing to the changes of the books as Server-Sent Events.
+     * Each event is named after the kind of the change ({@code added}, {@code deleted}, {@code owned},
+     * {@code cover-resolved}) and carries a {@link pl.booklist.dto.BookChangeDTO} as JSON.
+     * A {@value BookChangeFeed#RESET_EVENT} event means the lists have to be loaded again;
+     * it starts every new subscription.
+     * @param lastEventId id of the last received event, sent by the browser when it reconnects.
+     * @return stream of the changes, or 503 Service Unavailable when there are too many subscribers.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return bookChangeFeed.subscribe(lastEventId)
+                .map(emitter -> ResponseEntity.ok()
+                        // keep reverse proxies (nginx) from buffering the events
+                        .header("X-Accel-Buffering", "no")
+                        .contentType(EVENT_STREAM)
+                        .body(emitter))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "10")
+                        .build());
+    }
 
     @PostMapping
     public ResponseEntity<BookDTO> createBook(@RequestBody BookDTO bookDTO) {
@@ -62,4 +223,79 @@ public class BookController {
         BookDTO createdBook = bookService.addBook(bookDTO);
         return new ResponseEntity<>(createdBook, HttpStatus.CREATED);
     }
+
+    /**
+     * Handles POST request moving books to the collection with a single update statement.
+     * @param ids JSON array with the ids of the books, at most the maximum page size.
+     * @return number of books moved to the collection; books already owned or missing are skipped.
+     */
+    @PostMapping("/owned")
+    public Map<String, Integer> markAsOwned(@RequestBody List<Long> ids) {
+        return Map.of("updated", bookService.markAllAsOwned(requireBatchSize(ids)));
+    }
+
+    /**
+     * Handles POST request deleting books with a single statement (or marking them deleted, when soft deletes are on).
+     * @param ids JSON array with the ids of the books, at most the maximum page size.
+     * @return number of deleted books; missing books are skipped.
+     */
+    @PostMapping("/delete")
+    public Map<String, Integer> deleteBooks(@RequestBody List<Long> ids) {
+        return Map.of("deleted", bookService.deleteAll(requireBatchSize(ids)));
+    }
+
+    /**
+     * Handles POST request importing books from a JSON array of {@link BookDTO} objects.
+     * @param body the JSON array, read as a stream.
+     * @return report with the number of imported books and the errors of rejected rows.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BookImportResultDTO importBooksFromJson(InputStream body) {
+        return bookImportService.importJson(body);
+    }
+
+    /**
+     * Handles POST request importing books from a CSV file with the header {@code title,author,owned,coverUrl}.
+     * @param body the CSV file, read as a stream.
+     * @return report with the number of imported books and the errors of rejected rows.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public BookImportResultDTO importBooksFromCsv(InputStream body) {
+        return bookImportService.importCsv(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    private List<Long> requireBatchSize(List<Long> ids) {
+        int maxSize = properties.getPagination().getMaxSize();
+        if (ids.size() > maxSize) {
+            throw new IllegalArgumentException("Można zmienić najwyżej " + maxSize + " książek naraz.");
+        }
+        return ids;
+    }
+
+    private ResponseEntity<List<BookDTO>> toResponse(BookPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasMore()) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+
+    private ResponseEntity<StreamingResponseBody> toStream(Boolean owned) {
+        StreamingResponseBody body = outputStream -> bookService.streamBooks(owned, book -> {
+            try {
+                ndjsonWriter.writeValue(outputStream, book);
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
@@ -0,0 +1,114 @@
+package pl.booklist.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.service.BookService;
+import pl.booklist.service.CoverImageStore;
+import pl.booklist.service.CoverService;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Serves book covers from the local {@link CoverImageStore}, so the browser loads them from this server
+ * with long-lived cache headers instead of from Google Books on every page view.
+ * <p>
+ * Stored files are sent without copying them through the heap: with Tomcat's sendfile when the connector
+ * supports it, otherwise with {@link FileChannel#transferTo}. Covers which are not stored yet are downloaded
+ * in the background and the browser is redirected to the original image meanwhile. Covers from other hosts
+ * are never redirected to: only paths of this application are, anything else is answered with the default cover.
+ *
+ * @author Paweł Opala
+ */
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CoverImageController {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final BookService bookService;
+    private final CoverImageStore coverImageStore;
+    private final CacheControl cacheControl;
+
+    public CoverImageController(BookService bookService, CoverImageStore coverImageStore,
+                                BookListProperties properties) {
+        this.bookService = bookService;
+        this.coverImageStore = coverImageStore;
+        this.cacheControl = CacheControl.maxAge(properties.getCover().getImages().getMaxAge()).cachePublic();
+    }
+
+    /**
+     * Handles GET request for the cover of a book.
+     * @param id the id of the book.
+     * @param w optional width in pixels; rounded up to the nearest configured thumbnail width.
+     */
+    @GetMapping("/covers/{id}")
+    public void cover(@PathVariable Long id, @RequestParam(name = "w", required = false) Integer w,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String coverUrl = bookService.findCoverUrl(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Nie znaleziono książki o ID: " + id));
+
+        if (!coverImageStore.isStorable(coverUrl)) {
+            String path = isAppRelative(coverUrl) ? coverUrl : CoverService.DEFAULT_COVER_URL;
+            response.sendRedirect(request.getContextPath() + path);
+            return;
+        }
+
+        CoverImageStore.StoredImage image = coverImageStore.find(coverUrl, w).orElse(null);
+        if (image == null) {
+            coverImageStore.prefetch(coverUrl);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+            response.sendRedirect(coverUrl);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified("\"" + image.tag() + "\"")) {
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+            long length = file.size();
+            response.setContentType(image.contentType().toString());
+            response.setContentLengthLong(length);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                request.setAttribute(SENDFILE_FILENAME, image.path().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                return;
+            }
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < length) {
+                position += file.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    /**
+     * Tells whether the URL is a path of this application. {@code //host} and {@code /\host} also start with
+     * a slash, but browsers follow them to another host.
+     */
+    private static boolean isAppRelative(String url) {
+        return url.startsWith("/") && !url.startsWith("//") && !url.startsWith("/\\");
+    }
+}
@@ -1,35 +1,99 @@
 package pl.booklist.controller;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import pl.booklist.config.BookListProperties;
 import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.dto.BookShelfDTO;
+import pl.booklist.dto.BookSort;
 import pl.booklist.service.BookService;
 
+import java.util.List;
+
 /**
  * Controller for handling Thymeleaf views (pages).
  * Handles adding books to the wishlist and displaying the main book lists.
  */
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class MvcBookController {
 
+    private static final String OWNED_SECTION = "owned";
+    private static final String WISHLIST_SECTION = "wishlist";
+
     private final BookService bookService;
+    private final BookListProperties properties;
 
-    public MvcBookController(BookService bookService) {
+    public MvcBookController(BookService bookService, BookListProperties properties) {
         this.bookService = bookService;
+        this.properties = properties;
     }
 
+    /**
+     * Shows the first page of the collection and of the wishlist in the requested order
+     * ({@code added}, {@code title} or {@code author}). In insertion order both pages are fetched with a single query.
+     * Next pages of each section are loaded on demand from {@link #section(String, String, String, long, Model)},
+     * so the size of the page does not grow with the collection.
+     */
     @GetMapping("/")
-    public String home(Model model) {
-        model.addAttribute("ownedBooks", bookService.findOwnedBooks());
-        model.addAttribute("wishlistBooks", bookService.findUnownedBooks());
+    public String home(@RequestParam(defaultValue = "added") String sort, Model model) {
+        BookSort order = BookSort.fromParam(sort);
+        int sectionSize = properties.getPagination().getSectionSize();
+        BookPageDTO owned;
+        BookPageDTO wishlist;
+        if (order == BookSort.ADDED) {
+            BookShelfDTO shelf = bookService.findShelf(sectionSize);
+            owned = shelf.getOwned();
+            wishlist = shelf.getWishlist();
+        } else {
+            owned = bookService.findBooksPage(true, order, null, 0, sectionSize);
+            wishlist = bookService.findBooksPage(false, order, null, 0, sectionSize);
+        }
+        model.addAttribute("sort", order.getParam());
+        model.addAttribute("ownedBooks", owned.getItems());
+        model.addAttribute("ownedNextCursor", owned.getNextCursor());
+        model.addAttribute("ownedNextKey", owned.getNextKey());
+        model.addAttribute("wishlistBooks", wishlist.getItems());
+        model.addAttribute("wishlistNextCursor", wishlist.getNextCursor());
+        model.addAttribute("wishlistNextKey", wishlist.getNextKey());
         return "index";
     }
 
+    /**
+     * Renders the next page of a home page section as a HTML fragment, appended to the page by the browser
+     * when the end of the section scrolls into view.
+     */
+    @GetMapping("/books/section/{section}")
+    public String section(@PathVariable String section,
+                          @RequestParam(defaultValue = "added") String sort,
+                          @RequestParam(required = false) String afterKey,
+                          @RequestParam long after, Model model) {
+        boolean owned = switch (section) {
+            case OWNED_SECTION -> true;
+            case WISHLIST_SECTION -> false;
+            default -> throw new IllegalArgumentException("Nieznana sekcja: " + section);
+        };
+        BookSort order = BookSort.fromParam(sort);
+        BookPageDTO page = bookService.findBooksPage(owned, order, afterKey, after,
+                properties.getPagination().getSectionSize());
+        model.addAttribute("books", page.getItems());
+        model.addAttribute("section", section);
+        model.addAttribute("sort", order.getParam());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("nextKey", page.getNextKey());
+        return "fragments/books :: cards";
+    }
+
     @GetMapping("/add")
     public String showAddForm(Model model) {
         model.addAttribute("newBook", new BookDTO());
@@ -50,6 +114,25 @@ public class MvcBookController {
         }
         return "redirect:/";
     }
+    /**
+     * Deletes the books selected in the collection with a single statement;
+     * at most the maximum page size at once, like {@code POST /api/books/delete}.
+     */
+    @PostMapping("/books/delete")
+    public String deleteSelected(@RequestParam(name = "ids", required = false) List<Long> ids,
+                                 RedirectAttributes redirectAttributes) {
+        if (ids == null || ids.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Nie zaznaczono żadnej książki.");
+            return "redirect:/";
+        }
+        if (exceedsBatchSize(ids, redirectAttributes)) {
+            return "redirect:/";
+        }
+        int deleted = bookService.deleteAll(ids);
+        redirectAttributes.addFlashAttribute("message", "Usunięto książek: " + deleted + ".");
+        return "redirect:/";
+    }
+
     @PostMapping("/books/delete/{id}")
     public String deleteBook(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         bookService.deleteById(id);
@@ -57,6 +140,25 @@ public class MvcBookController {
         return "redirect:/";
     }
 
+    /**
+     * Moves the books selected on the wishlist to the collection with a single update statement;
+     * at most the maximum page size at once, like {@code POST /api/books/owned}.
+     */
+    @PostMapping("/books/moveToOwned")
+    public String moveSelectedToOwned(@RequestParam(name = "ids", required = false) List<Long> ids,
+                                      RedirectAttributes redirectAttributes) {
+        if (ids == null || ids.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Nie zaznaczono żadnej książki.");
+            return "redirect:/";
+        }
+        if (exceedsBatchSize(ids, redirectAttributes)) {
+            return "redirect:/";
+        }
+        int moved = bookService.markAllAsOwned(ids);
+        redirectAttributes.addFlashAttribute("message", "Dodano do kolekcji książek: " + moved + ".");
+        return "redirect:/";
+    }
+
     @PostMapping("/books/moveToOwned/{id}")
     public String moveToOwned(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         bookService.markAsOwned(id);
@@ -64,4 +166,22 @@ public class MvcBookController {
         return "redirect:/";
     }
 
+    /**
+     * Answers an unknown sort order or home page section with 400 instead of an error page,
+     * like the REST controllers do.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private boolean exceedsBatchSize(List<Long> ids, RedirectAttributes redirectAttributes) {
+        int maxSize = properties.getPagination().getMaxSize();
+        if (ids.size() <= maxSize) {
+            return false;
+        }
+        redirectAttributes.addFlashAttribute("error", "Można zmienić najwyżej " + maxSize + " książek naraz.");
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package pl.booklist.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.service.ReactiveBookService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link BookController}, served by WebFlux when the application runs on the reactive
+ * web stack ({@code spring.main.web-application-type=reactive}). The endpoints, parameters and responses are
+ * the same, including the cursor in the {@value BookController#NEXT_CURSOR_HEADER} header.
+ * <p>
+ * Not available in this variant: ETags of the lists, the import and the change feed; the Thymeleaf pages
+ * and the cover images are served by the servlet stack only.
+ *
+ * @author Paweł Opala
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/books")
+public class ReactiveBookController {
+
+    private final ReactiveBookService bookService;
+    private final BookListProperties properties;
+
+    public ReactiveBookController(ReactiveBookService bookService, BookListProperties properties) {
+        this.bookService = bookService;
+        this.properties = properties;
+    }
+
+    @GetMapping("/showAllBooks")
+    public Mono<ResponseEntity<List<BookDTO>>> getAllBooks(@RequestParam(defaultValue = "0") long after,
+                                                           @RequestParam(required = false) Integer size) {
+        return bookService.findBooksPage(null, after, properties.getPagination().resolveSize(size))
+                .map(ReactiveBookController::toResponse);
+    }
+
+    @GetMapping("/my-books")
+    public Mono<ResponseEntity<List<BookDTO>>> getOwnedBooks(@RequestParam(defaultValue = "0") long after,
+                                                             @RequestParam(required = false) Integer size) {
+        return bookService.findBooksPage(true, after, properties.getPagination().resolveSize(size))
+                .map(ReactiveBookController::toResponse);
+    }
+
+    @GetMapping("/wishlist")
+    public Mono<ResponseEntity<List<BookDTO>>> getUnownedBooks(@RequestParam(defaultValue = "0") long after,
+                                                               @RequestParam(required = false) Integer size) {
+        return bookService.findBooksPage(false, after, properties.getPagination().resolveSize(size))
+                .map(ReactiveBookController::toResponse);
+    }
+
+    @GetMapping("/search")
+    public Flux<BookDTO> searchBooks(@RequestParam String q,
+                                     @RequestParam(required = false) Boolean owned,
+                                     @RequestParam(required = false) Integer size) {
+        return bookService.searchBooks(q, owned, properties.getPagination().resolveSize(size));
+    }
+
+    @GetMapping(value = "/showAllBooks/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookDTO> streamAllBooks() {
+        return bookService.streamBooks(null);
+    }
+
+    @GetMapping(value = "/my-books/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookDTO> streamOwnedBooks() {
+        return bookService.streamBooks(true);
+    }
+
+    @GetMapping(value = "/wishlist/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookDTO> streamUnownedBooks() {
+        return bookService.streamBooks(false);
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> createBook(@RequestBody BookDTO bookDTO) {
+        return bookService.addBook(bookDTO);
+    }
+
+    @PostMapping("/owned")
+    public Mono<Map<String, Integer>> markAsOwned(@RequestBody List<Long> ids) {
+        return bookService.markAllAsOwned(requireBatchSize(ids)).map(updated -> Map.of("updated", updated));
+    }
+
+    @PostMapping("/delete")
+    public Mono<Map<String, Integer>> deleteBooks(@RequestBody List<Long> ids) {
+        return bookService.deleteAll(requireBatchSize(ids)).map(deleted -> Map.of("deleted", deleted));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    private List<Long> requireBatchSize(List<Long> ids) {
+        int maxSize = properties.getPagination().getMaxSize();
+        if (ids.size() > maxSize) {
+            throw new IllegalArgumentException("Można zmienić najwyżej " + maxSize + " książek naraz.");
+        }
+        return ids;
+    }
+
+    private static ResponseEntity<List<BookDTO>> toResponse(BookPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasMore()) {
+            response.header(BookController.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+}
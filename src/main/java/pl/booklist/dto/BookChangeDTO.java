@@ -0,0 +1,99 @@
+package pl.booklist.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import pl.booklist.event.BookChangedEvent;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Single change of the books sent to the subscribers of the change feed.
+ * Carries only what changed, so clients can update their lists without downloading them again.
+ *
+ * @author Paweł Opala
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BookChangeDTO {
+
+    /**
+     * Kind of the change.
+     */
+    private final BookChangedEvent.Type type;
+
+    /**
+     * Ids of the changed books.
+     */
+    private final List<Long> bookIds;
+
+    /**
+     * The added books; empty for other kinds of changes.
+     */
+    private final List<BookDTO> books;
+
+    /**
+     * URL of the resolved cover; null for other kinds of changes.
+     */
+    private final String coverUrl;
+
+    /**
+     * Constructs a new change.
+     *
+     * @param type     kind of the change
+     * @param bookIds  ids of the changed books
+     * @param books    the added books, empty for other kinds of changes
+     * @param coverUrl URL of the resolved cover, null for other kinds of changes
+     */
+    public BookChangeDTO(BookChangedEvent.Type type, List<Long> bookIds, List<BookDTO> books, String coverUrl) {
+        this.type = type;
+        this.bookIds = bookIds;
+        this.books = books;
+        this.coverUrl = coverUrl;
+    }
+
+    /**
+     * @param event the published change
+     * @return the change as sent to the subscribers
+     */
+    public static BookChangeDTO of(BookChangedEvent event) {
+        return new BookChangeDTO(event.getType(), event.getBookIds(), event.getBooks(), event.getCoverUrl());
+    }
+
+    public BookChangedEvent.Type getType() {
+        return type;
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    public List<BookDTO> getBooks() {
+        return books;
+    }
+
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookChangeDTO that = (BookChangeDTO) o;
+        return type == that.type && Objects.equals(bookIds, that.bookIds)
+                && Objects.equals(books, that.books) && Objects.equals(coverUrl, that.coverUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, bookIds, books, coverUrl);
+    }
+
+    @Override
+    public String toString() {
+        return "BookChangeDTO{" +
+                "type=" + type +
+                ", bookIds=" + bookIds +
+                ", coverUrl='" + coverUrl + '\'' +
+                '}';
+    }
+}
@@ -41,8 +41,9 @@ public class BookDTO {
     private boolean owned;
 
     /**
-     * URL of the book's cover image.
+     * URL of the book's cover image. Must not exceed 2048 characters.
      */
+    @Size(max = 2048)
     private String coverUrl;
 
     /**
@@ -0,0 +1,58 @@
+package pl.booklist.dto;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Format of the export of the collection.
+ *
+ * @author Paweł Opala
+ */
+public enum BookExportFormat {
+
+    /**
+     * CSV with the header {@code id,title,author,owned,coverUrl}, which the CSV import accepts as it is.
+     */
+    CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+
+    /**
+     * One JSON object per line, with the fields of {@link BookDTO}.
+     */
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+    private final String param;
+    private final MediaType mediaType;
+
+    BookExportFormat(String param, MediaType mediaType) {
+        this.param = param;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return value of the {@code format} request parameter selecting this format, also the file extension
+     */
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * @return content type of the uncompressed export
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param param value of the {@code format} request parameter
+     * @return the selected format
+     * @throws IllegalArgumentException when the value does not name a format
+     */
+    public static BookExportFormat fromParam(String param) {
+        return Arrays.stream(values())
+                .filter(format -> format.param.equals(param))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Nieznany format eksportu: " + param));
+    }
+}
@@ -0,0 +1,97 @@
+package pl.booklist.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Report of a bulk book import.
+ * Contains the number of imported and rejected rows and the reasons why rows were rejected.
+ *
+ * @author Paweł Opala
+ */
+public class BookImportResultDTO {
+
+    /**
+     * Number of books saved in the database.
+     */
+    private long imported;
+
+    /**
+     * Number of rows which were not saved.
+     */
+    private long failed;
+
+    /**
+     * Errors of the rejected rows, limited to the configured number of entries.
+     */
+    private final List<RowError> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param row       number of the row in the imported file (starting with 1)
+     * @param message   reason why the row was rejected
+     * @param maxErrors maximum number of errors kept in the report
+     */
+    public void addError(long row, String message, int maxErrors) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BookImportResultDTO{" +
+                "imported=" + imported +
+                ", failed=" + failed +
+                ", errors=" + errors +
+                '}';
+    }
+
+    /**
+     * Error of a single imported row.
+     */
+    public static class RowError {
+
+        private final long row;
+        private final String message;
+
+        public RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "RowError{" +
+                    "row=" + row +
+                    ", message='" + message + '\'' +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pl.booklist.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Single page of books returned by the keyset (cursor) pagination.
+ * Contains the books of the page and the cursor pointing to the next page.
+ *
+ * @author Paweł Opala
+ */
+public class BookPageDTO {
+
+    /**
+     * Books of the current page, ordered by id or by the requested {@link BookSort}.
+     */
+    private final List<BookDTO> items;
+
+    /**
+     * Id of the last book on this page, to be passed as {@code after} to get the next page.
+     * Null when there are no more books.
+     */
+    private final Long nextCursor;
+
+    /**
+     * Sort key (title or author) of the last book on this page, passed with {@link #nextCursor}
+     * when the books are not ordered by id. Null when there are no more books or the books are ordered by id.
+     */
+    private final String nextKey;
+
+    /**
+     * Constructs a new page of books ordered by id.
+     *
+     * @param items      books of the page
+     * @param nextCursor cursor of the next page or null when this is the last page
+     */
+    public BookPageDTO(List<BookDTO> items, Long nextCursor) {
+        this(items, nextCursor, null);
+    }
+
+    /**
+     * Constructs a new page of sorted books.
+     *
+     * @param items      books of the page
+     * @param nextCursor id of the last book or null when this is the last page
+     * @param nextKey    sort key of the last book or null when this is the last page
+     */
+    public BookPageDTO(List<BookDTO> items, Long nextCursor, String nextKey) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.nextKey = nextKey;
+    }
+
+    public List<BookDTO> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getNextKey() {
+        return nextKey;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookPageDTO that = (BookPageDTO) o;
+        return Objects.equals(items, that.items) && Objects.equals(nextCursor, that.nextCursor)
+                && Objects.equals(nextKey, that.nextKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, nextCursor, nextKey);
+    }
+
+    @Override
+    public String toString() {
+        return "BookPageDTO{" +
+                "items=" + items +
+                ", nextCursor=" + nextCursor +
+                ", nextKey='" + nextKey + '\'' +
+                '}';
+    }
+}
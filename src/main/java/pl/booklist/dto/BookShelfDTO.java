@@ -0,0 +1,62 @@
+package pl.booklist.dto;
+
+import java.util.Objects;
+
+/**
+ * Both sections of the home page: the owned books (collection) and the wishlist.
+ * Each section holds its first page and the cursor of the next one.
+ *
+ * @author Paweł Opala
+ */
+public class BookShelfDTO {
+
+    /**
+     * First page of the books owned by the user.
+     */
+    private final BookPageDTO owned;
+
+    /**
+     * First page of the books on the wishlist.
+     */
+    private final BookPageDTO wishlist;
+
+    /**
+     * Constructs a new shelf.
+     *
+     * @param owned    first page of the owned books
+     * @param wishlist first page of the wishlist
+     */
+    public BookShelfDTO(BookPageDTO owned, BookPageDTO wishlist) {
+        this.owned = owned;
+        this.wishlist = wishlist;
+    }
+
+    public BookPageDTO getOwned() {
+        return owned;
+    }
+
+    public BookPageDTO getWishlist() {
+        return wishlist;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookShelfDTO that = (BookShelfDTO) o;
+        return Objects.equals(owned, that.owned) && Objects.equals(wishlist, that.wishlist);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(owned, wishlist);
+    }
+
+    @Override
+    public String toString() {
+        return "BookShelfDTO{" +
+                "owned=" + owned +
+                ", wishlist=" + wishlist +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package pl.booklist.dto;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Order of the books in the paged views. Every order is paginated with a keyset: the sort key
+ * of the last book of a page and its id, which breaks ties between books with the same key.
+ *
+ * @author Paweł Opala
+ */
+public enum BookSort {
+
+    /**
+     * Insertion order, i.e. by id; the id alone is the cursor.
+     */
+    ADDED("added", book -> null),
+
+    /**
+     * By title, then by id.
+     */
+    TITLE("title", BookDTO::getTitle),
+
+    /**
+     * By author, then by id.
+     */
+    AUTHOR("author", BookDTO::getAuthor);
+
+    private final String param;
+    private final Function<BookDTO, String> key;
+
+    BookSort(String param, Function<BookDTO, String> key) {
+        this.param = param;
+        this.key = key;
+    }
+
+    /**
+     * @return value of the {@code sort} request parameter selecting this order
+     */
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * @param book a book of a page
+     * @return sort key of the book, passed with its id as the cursor of the next page; null for {@link #ADDED}
+     */
+    public String keyOf(BookDTO book) {
+        return key.apply(book);
+    }
+
+    /**
+     * @param param value of the {@code sort} request parameter
+     * @return the selected order
+     * @throws IllegalArgumentException when the value does not name an order
+     */
+    public static BookSort fromParam(String param) {
+        return Arrays.stream(values())
+                .filter(sort -> sort.param.equals(param))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Nieznany sposób sortowania: " + param));
+    }
+}
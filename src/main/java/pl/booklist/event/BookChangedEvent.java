@@ -0,0 +1,101 @@
+package pl.booklist.event;
+
+import pl.booklist.dto.BookDTO;
+
+import java.util.List;
+
+/**
+ * Application event published after books have been changed.
+ * Lets other components (caches, indexes, change feeds) react to changes
+ * without {@link pl.booklist.service.BookService} knowing about them.
+ *
+ * @author Paweł Opala
+ */
+public class BookChangedEvent {
+
+    /**
+     * Kind of the change.
+     */
+    public enum Type {
+        ADDED, DELETED, OWNED, COVER_RESOLVED
+    }
+
+    private final Type type;
+    private final List<Long> bookIds;
+    private final List<BookDTO> books;
+    private final String coverUrl;
+
+    private BookChangedEvent(Type type, List<Long> bookIds, List<BookDTO> books, String coverUrl) {
+        this.type = type;
+        this.bookIds = bookIds;
+        this.books = books;
+        this.coverUrl = coverUrl;
+    }
+
+    /**
+     * @param books the saved books
+     * @return event of added books
+     */
+    public static BookChangedEvent added(List<BookDTO> books) {
+        return new BookChangedEvent(Type.ADDED, books.stream().map(BookDTO::getId).toList(), books, null);
+    }
+
+    /**
+     * @param bookIds ids of the removed books
+     * @return event of removed books
+     */
+    public static BookChangedEvent deleted(List<Long> bookIds) {
+        return new BookChangedEvent(Type.DELETED, bookIds, List.of(), null);
+    }
+
+    /**
+     * @param bookIds ids of the books moved from the wishlist to the collection
+     * @return event of books marked as owned
+     */
+    public static BookChangedEvent owned(List<Long> bookIds) {
+        return new BookChangedEvent(Type.OWNED, bookIds, List.of(), null);
+    }
+
+    /**
+     * @param bookId   id of the book
+     * @param coverUrl URL of the resolved cover
+     * @return event of a cover resolved in the background
+     */
+    public static BookChangedEvent coverResolved(Long bookId, String coverUrl) {
+        return new BookChangedEvent(Type.COVER_RESOLVED, List.of(bookId), List.of(), coverUrl);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return ids of the changed books
+     */
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    /**
+     * @return the added books, empty for other types of changes
+     */
+    public List<BookDTO> getBooks() {
+        return books;
+    }
+
+    /**
+     * @return URL of the resolved cover, null for other types of changes
+     */
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "BookChangedEvent{" +
+                "type=" + type +
+                ", bookIds=" + bookIds +
+                ", coverUrl='" + coverUrl + '\'' +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package pl.booklist.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import pl.booklist.dto.BookDTO;
 import pl.booklist.model.Book;
 
@@ -9,6 +10,10 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface BookMapper {
     BookDTO toDto(Book book);
+
+    @Mapping(target = "coverPending", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
     Book toEntity(BookDTO dto);
 
     List<BookDTO> toDtoList(List<Book> books);
@@ -3,24 +3,50 @@ package pl.booklist.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.SQLRestriction;
+import pl.booklist.dto.BookDTO;
+
+import java.time.Instant;
 import java.util.Objects;
 
 /**
  * Represent a book entity in the BookList application.
  * Stores basic information about a book such as title, author, and ownership status.
  * Mapped to the "book" table in the database.
+ * The {@value #DTO_MAPPING} result set mapping lets native queries return {@link BookDTO}s directly,
+ * without managed entities.
+ * Soft-deleted books (with {@link #deletedAt} set) are excluded from all entity queries by the SQL restriction;
+ * native queries have to exclude them themselves.
  * @author Paweł Opala
  * @version 1.0
   */
 @Entity
 @Table(name = "book")
+@SQLRestriction("deleted_at IS NULL")
+@NamedNativeQuery(name = "Book.findShelf",
+        query = "(SELECT id, title, author, owned, cover_url FROM book WHERE owned = TRUE AND deleted_at IS NULL ORDER BY id LIMIT :limit) " +
+                "UNION ALL " +
+                "(SELECT id, title, author, owned, cover_url FROM book WHERE owned = FALSE AND deleted_at IS NULL ORDER BY id LIMIT :limit)",
+        resultSetMapping = Book.DTO_MAPPING)
+@SqlResultSetMapping(name = Book.DTO_MAPPING,
+        classes = @ConstructorResult(targetClass = BookDTO.class, columns = {
+                @ColumnResult(name = "id", type = Long.class),
+                @ColumnResult(name = "title", type = String.class),
+                @ColumnResult(name = "author", type = String.class),
+                @ColumnResult(name = "owned", type = Boolean.class),
+                @ColumnResult(name = "cover_url", type = String.class)
+        }))
 public class Book {
 
+    public static final String DTO_MAPPING = "BookDTO";
+
     /**
-     * Unique identifier for the book. Automatically generated by the database.
+     * Unique identifier for the book. Taken from the "book_seq" sequence in blocks of 50,
+     * so inserts can be sent to the database in JDBC batches.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -46,11 +72,33 @@ public class Book {
     private boolean owned;
 
     /**
-     * URL of the book's cover image, typically fetched from Google Books API.
+     * URL of the book's cover image, typically fetched from Google Books API. Must not exceed 2048 characters.
      */
-    @Column(name = "cover_url", length = 10000)
+    @Column(name = "cover_url", length = 2048)
+    @Size(max = 2048)
     private String coverUrl;
 
+    /**
+     * Indicates that the cover is still being resolved in the background
+     * and {@link #coverUrl} holds the default cover until then.
+     */
+    @Column(name = "cover_pending")
+    private boolean coverPending;
+
+    /**
+     * Version used for optimistic locking. Bulk updates of {@code BookRepository} increment it as well,
+     * so an entity loaded before such an update cannot overwrite its changes.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Time the book was soft-deleted, or null for a live book. Tombstones are removed by the purge.
+     */
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     /**
      * Constructs a new Book instance with the specified title, author, and ownership status.
      *
@@ -105,6 +153,30 @@ public class Book {
         this.coverUrl = coverUrl;
     }
 
+    public boolean isCoverPending() {
+        return coverPending;
+    }
+
+    public void setCoverPending(boolean coverPending) {
+        this.coverPending = coverPending;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     public boolean isOwned() {
         return owned;
     }
@@ -0,0 +1,80 @@
+package pl.booklist.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.util.Objects;
+
+/**
+ * Counter of changes made to the book catalog, shared by all application instances.
+ * Incremented after every change of the books, so cached data can be recognised as stale.
+ * Mapped to the single row of the "catalog_version" table.
+ *
+ * @author Paweł Opala
+ */
+@Entity
+@Table(name = "catalog_version")
+public class CatalogVersion {
+
+    /**
+     * Id of the only row of the table.
+     */
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    /**
+     * Number of changes made to the catalog.
+     */
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Constructs the counter.
+     *
+     * @param id      id of the row
+     * @param version initial value of the counter
+     */
+    public CatalogVersion(Integer id, long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    /**
+     * Default constructor required by JPA.
+     */
+    public CatalogVersion() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogVersion that = (CatalogVersion) o;
+        return version == that.version && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, version);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogVersion{" +
+                "id=" + id +
+                ", version=" + version +
+                '}';
+    }
+}
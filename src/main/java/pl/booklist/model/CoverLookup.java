@@ -0,0 +1,91 @@
+package pl.booklist.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Result of a cover lookup in Google Books, stored so the cover cache survives restarts.
+ * Mapped to the "cover_lookup" table in the database.
+ *
+ * @author Paweł Opala
+ */
+@Entity
+@Table(name = "cover_lookup")
+public class CoverLookup {
+
+    /**
+     * Normalized title and author of the book.
+     */
+    @Id
+    @Column(name = "lookup_key", length = 255)
+    private String lookupKey;
+
+    /**
+     * URL of the found cover, null when Google Books has no cover for the book.
+     */
+    @Column(name = "cover_url", length = 1024)
+    private String coverUrl;
+
+    /**
+     * Moment of the lookup, used to expire the entry.
+     */
+    @Column(name = "resolved_at", nullable = false)
+    private Instant resolvedAt;
+
+    /**
+     * Constructs a new lookup result.
+     *
+     * @param lookupKey  normalized title and author of the book
+     * @param coverUrl   URL of the found cover or null
+     * @param resolvedAt moment of the lookup
+     */
+    public CoverLookup(String lookupKey, String coverUrl, Instant resolvedAt) {
+        this.lookupKey = lookupKey;
+        this.coverUrl = coverUrl;
+        this.resolvedAt = resolvedAt;
+    }
+
+    /**
+     * Default constructor required by JPA.
+     */
+    public CoverLookup() {
+    }
+
+    public String getLookupKey() {
+        return lookupKey;
+    }
+
+    public String getCoverUrl() {
+        return coverUrl;
+    }
+
+    public Instant getResolvedAt() {
+        return resolvedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CoverLookup that = (CoverLookup) o;
+        return Objects.equals(lookupKey, that.lookupKey) && Objects.equals(coverUrl, that.coverUrl) && Objects.equals(resolvedAt, that.resolvedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lookupKey, coverUrl, resolvedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "CoverLookup{" +
+                "lookupKey='" + lookupKey + '\'' +
+                ", coverUrl='" + coverUrl + '\'' +
+                ", resolvedAt=" + resolvedAt +
+                '}';
+    }
+}
@@ -1,21 +1,41 @@
 package pl.booklist.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.booklist.dto.BookDTO;
 import pl.booklist.model.Book;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 
 /**
  * Repository interface for accessing and managing {@link Book} entities.
  * Extends {@link JpaRepository} to provide standard CRUD operations.
  * Used by persistence layer to interreact with the database.
+ * List reads return {@link BookDTO} projections; entities are loaded only to be changed.
  *
  * @author Paweł Opala
  */
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+    /**
+     * Reads books straight into {@link BookDTO}s. DTOs are not managed, so list reads skip
+     * the persistence context, dirty-checking snapshots and the mapper.
+     */
+    String SELECT_DTO = "select new pl.booklist.dto.BookDTO(b.id, b.title, b.author, b.owned, b.coverUrl) from Book b";
+
     /**
      * Retrieves all books that are marked as owned by the user.
      *
@@ -29,4 +49,204 @@ public interface BookRepository extends JpaRepository<Book, Long> {
      * @return list of books with owned = false.
      */
     List<Book> findByOwnedFalse();
+
+    /**
+     * Retrieves a single page of books using keyset pagination on the id.
+     * Books are read straight into DTOs, so no entities end up in the persistence context.
+     *
+     * @param afterId id of the last book of the previous page (0 for the first page).
+     * @param limit   maximum number of books to return.
+     * @return books with id greater than {@code afterId}, ordered by id.
+     */
+    @Query(SELECT_DTO + " where b.id > :afterId order by b.id")
+    List<BookDTO> findDtoPage(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Retrieves a single page of owned or unowned books using keyset pagination on the id.
+     * Books are read straight into DTOs, so no entities end up in the persistence context.
+     *
+     * @param owned   ownership status of the books.
+     * @param afterId id of the last book of the previous page (0 for the first page).
+     * @param limit   maximum number of books to return.
+     * @return books with the given status and id greater than {@code afterId}, ordered by id.
+     */
+    @Query(SELECT_DTO + " where b.owned = :owned and b.id > :afterId order by b.id")
+    List<BookDTO> findDtoPageByOwned(@Param("owned") boolean owned, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Retrieves a single page of owned or unowned books ordered by title, using keyset pagination
+     * on the title and the id.
+     *
+     * @param owned    ownership status of the books.
+     * @param afterKey title of the last book of the previous page (empty for the first page).
+     * @param afterId  id of the last book of the previous page (0 for the first page).
+     * @param limit    maximum number of books to return.
+     * @return books following the given one, ordered by title and id.
+     */
+    @Query(SELECT_DTO + " where b.owned = :owned and (b.title > :afterKey or (b.title = :afterKey and b.id > :afterId))"
+            + " order by b.title, b.id")
+    List<BookDTO> findDtoPageByOwnedOrderByTitle(@Param("owned") boolean owned, @Param("afterKey") String afterKey,
+                                                 @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Retrieves a single page of owned or unowned books ordered by author, using keyset pagination
+     * on the author and the id.
+     *
+     * @param owned    ownership status of the books.
+     * @param afterKey author of the last book of the previous page (empty for the first page).
+     * @param afterId  id of the last book of the previous page (0 for the first page).
+     * @param limit    maximum number of books to return.
+     * @return books following the given one, ordered by author and id.
+     */
+    @Query(SELECT_DTO + " where b.owned = :owned and (b.author > :afterKey or (b.author = :afterKey and b.id > :afterId))"
+            + " order by b.author, b.id")
+    List<BookDTO> findDtoPageByOwnedOrderByAuthor(@Param("owned") boolean owned, @Param("afterKey") String afterKey,
+                                                  @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Same page as {@link #findDtoPageByOwned(boolean, Long, Limit)} but read as managed entities.
+     * Kept for the comparison in the repository benchmark.
+     *
+     * @param owned   ownership status of the books.
+     * @param afterId id of the last book of the previous page (0 for the first page).
+     * @param limit   maximum number of books to return.
+     * @return books with the given status and id greater than {@code afterId}, ordered by id.
+     */
+    List<Book> findByOwnedAndIdGreaterThanOrderByIdAsc(boolean owned, Long afterId, Limit limit);
+
+    /**
+     * Retrieves all books as DTOs.
+     *
+     * @return all books.
+     */
+    @Query(SELECT_DTO)
+    List<BookDTO> findAllDtos();
+
+    /**
+     * Retrieves owned or unowned books as DTOs.
+     *
+     * @param owned ownership status of the books.
+     * @return books with the given status.
+     */
+    @Query(SELECT_DTO + " where b.owned = :owned")
+    List<BookDTO> findDtosByOwned(@Param("owned") boolean owned);
+
+    /**
+     * Retrieves the books with the given ids as DTOs.
+     *
+     * @param ids ids of the books.
+     * @return existing books with the given ids, in no particular order.
+     */
+    @Query(SELECT_DTO + " where b.id in :ids")
+    List<BookDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams all books as DTOs ordered by id, fetching rows from the database in chunks.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return stream of all books.
+     */
+    @Query(SELECT_DTO + " order by b.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookDTO> streamAllDtos();
+
+    /**
+     * Streams owned or unowned books as DTOs ordered by id, fetching rows from the database in chunks.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @param owned ownership status of the books.
+     * @return stream of books with the given status.
+     */
+    @Query(SELECT_DTO + " where b.owned = :owned order by b.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookDTO> streamDtosByOwned(@Param("owned") boolean owned);
+
+    /**
+     * Retrieves books whose cover is still waiting to be resolved in the background.
+     *
+     * @param limit maximum number of books to return.
+     * @return books with cover_pending = true, ordered by id.
+     */
+    List<Book> findByCoverPendingTrueOrderByIdAsc(Limit limit);
+
+    /**
+     * Stores the resolved cover of the book and clears its pending state in a single update.
+     *
+     * @param id       id of the book.
+     * @param coverUrl URL of the resolved cover.
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Book b set b.coverUrl = :coverUrl, b.coverPending = false, b.version = b.version + 1 where b.id = :id")
+    int updateCover(@Param("id") Long id, @Param("coverUrl") String coverUrl);
+
+    /**
+     * Marks the books as owned with a single update statement, without loading them.
+     * Books which are already owned are not touched; the version of the changed books is incremented.
+     * @param ids the ids of the books.
+     * @return number of books which were changed.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Book b set b.owned = true, b.version = b.version + 1 where b.id in :ids and b.owned = false and b.deletedAt is null")
+    int markOwned(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the books with a single statement, without loading them.
+     * @param ids the ids of the books.
+     * @return number of deleted books.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Book b where b.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Soft-deletes the books with a single statement: sets their tombstone, which hides them from all queries.
+     * @param ids the ids of the books.
+     * @param deletedAt time of the deletion, used by the purge.
+     * @return number of deleted books.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Book b set b.deletedAt = :deletedAt, b.version = b.version + 1 where b.id in :ids and b.deletedAt is null")
+    int softDeleteByIds(@Param("ids") Collection<Long> ids, @Param("deletedAt") Instant deletedAt);
+
+    /**
+     * Finds the oldest tombstones. Native, because soft-deleted books are hidden from entity queries.
+     * @param cutoff only books deleted before this time are returned.
+     * @param limit maximum number of ids.
+     * @return ids of soft-deleted books.
+     */
+    @Query(value = "SELECT id FROM book WHERE deleted_at < :cutoff ORDER BY deleted_at LIMIT :limit", nativeQuery = true)
+    List<Long> findTombstoneIds(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    /**
+     * Removes the rows of soft-deleted books.
+     * @param ids ids of the tombstones, see {@link #findTombstoneIds(Instant, int)}.
+     * @return number of removed rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM book WHERE deleted_at IS NOT NULL AND id IN (:ids)", nativeQuery = true)
+    int purgeTombstones(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Reads the cover URL of a book without loading the entity.
+     * @param id the id of the book.
+     * @return the cover URL, or empty when there is no such book.
+     */
+    @Query("select b.coverUrl from Book b where b.id = :id")
+    Optional<String> findCoverUrlById(@Param("id") Long id);
+
+    /**
+     * Retrieves the first books of both sections of the home page in a single query:
+     * up to {@code limit} owned books and up to {@code limit} unowned books, each ordered by id.
+     * The native query is declared on {@link Book} together with the mapping of its rows to DTOs.
+     *
+     * @param limit maximum number of books of each section.
+     * @return owned books followed by unowned books.
+     */
+    List<BookDTO> findShelf(@Param("limit") int limit);
 }
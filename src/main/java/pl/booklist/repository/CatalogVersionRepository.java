@@ -0,0 +1,40 @@
+package pl.booklist.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.booklist.model.CatalogVersion;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for the shared counter of catalog changes.
+ *
+ * @author Paweł Opala
+ */
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Integer> {
+
+    /**
+     * Reads the current value of the counter without loading the entity.
+     *
+     * @param id id of the counter row.
+     * @return value of the counter, empty when the row does not exist yet.
+     */
+    @Query("select v.version from CatalogVersion v where v.id = :id")
+    Optional<Long> findVersion(@Param("id") Integer id);
+
+    /**
+     * Increments the counter with a single update, safe for concurrent instances.
+     *
+     * @param id id of the counter row.
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("update CatalogVersion v set v.version = v.version + 1 where v.id = :id")
+    int increment(@Param("id") Integer id);
+}
@@ -0,0 +1,31 @@
+package pl.booklist.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.booklist.model.CoverLookup;
+
+import java.time.Instant;
+
+/**
+ * Repository interface for the persistent tier of the cover cache.
+ *
+ * @author Paweł Opala
+ */
+@Repository
+public interface CoverLookupRepository extends JpaRepository<CoverLookup, String> {
+
+    /**
+     * Removes lookups older than the given moment.
+     *
+     * @param before lookups resolved before this moment are removed.
+     * @return number of removed lookups.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from CoverLookup c where c.resolvedAt < :before")
+    int deleteResolvedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,202 @@
+package pl.booklist.repository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pl.booklist.dto.BookDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Non-blocking access to the {@code book} table over R2DBC, used by the reactive variant of the book API.
+ * Mirrors the DTO queries of {@link BookRepository}: books are read straight into {@link BookDTO}s
+ * and soft-deleted books are skipped.
+ * <p>
+ * Ids come from {@code book_seq} like the ids of Hibernate: every value taken from the sequence reserves
+ * the {@value #ID_ALLOCATION_SIZE} ids ending with it (the pooled optimizer), so books added over JDBC and
+ * over R2DBC never get the same id.
+ *
+ * @author Paweł Opala
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookRepository {
+
+    /**
+     * Must match the {@code allocationSize} of the id generator of {@code Book}.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String DTO_COLUMNS = "id, title, author, owned, cover_url";
+
+    private final DatabaseClient databaseClient;
+    private final boolean mysql;
+
+    private long nextId;
+    private long lastId = -1;
+
+    public ReactiveBookRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.mysql = connectionFactory.getMetadata().getName().toLowerCase(Locale.ROOT).contains("mysql");
+    }
+
+    /**
+     * @param afterId id of the last book of the previous page
+     * @param limit   maximum number of books
+     * @return books with ids greater than {@code afterId}, ordered by id
+     */
+    public Flux<BookDTO> findDtoPage(long afterId, int limit) {
+        return databaseClient.sql("SELECT " + DTO_COLUMNS + " FROM book"
+                        + " WHERE deleted_at IS NULL AND id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveBookRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @param owned   ownership status of the books
+     * @param afterId id of the last book of the previous page
+     * @param limit   maximum number of books
+     * @return owned or unowned books with ids greater than {@code afterId}, ordered by id
+     */
+    public Flux<BookDTO> findDtoPageByOwned(boolean owned, long afterId, int limit) {
+        return databaseClient.sql("SELECT " + DTO_COLUMNS + " FROM book"
+                        + " WHERE deleted_at IS NULL AND owned = :owned AND id > :afterId ORDER BY id LIMIT :limit")
+                .bind("owned", owned)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveBookRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @param owned ownership status of the books, or null for all books
+     * @return all books ordered by id, emitted as they are read
+     */
+    public Flux<BookDTO> streamDtos(Boolean owned) {
+        if (owned == null) {
+            return databaseClient.sql("SELECT " + DTO_COLUMNS + " FROM book WHERE deleted_at IS NULL ORDER BY id")
+                    .map(ReactiveBookRepository::toDto)
+                    .all();
+        }
+        return databaseClient.sql("SELECT " + DTO_COLUMNS + " FROM book"
+                        + " WHERE deleted_at IS NULL AND owned = :owned ORDER BY id")
+                .bind("owned", owned)
+                .map(ReactiveBookRepository::toDto)
+                .all();
+    }
+
+    /**
+     * @param ids ids of the books, not empty
+     * @return the books with the given ids, in no particular order
+     */
+    public Flux<BookDTO> findDtosByIdIn(Collection<Long> ids) {
+        return databaseClient.sql("SELECT " + DTO_COLUMNS + " FROM book WHERE deleted_at IS NULL AND id IN (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveBookRepository::toDto)
+                .all();
+    }
+
+    /**
+     * Inserts a new book with the next id of {@code book_seq}.
+     *
+     * @param book         the book; its id is ignored
+     * @param coverPending whether the cover is still to be resolved in the background
+     * @return the saved book with its id
+     */
+    public Mono<BookDTO> insert(BookDTO book, boolean coverPending) {
+        return nextId().flatMap(id -> databaseClient.sql("INSERT INTO book"
+                        + " (id, title, author, owned, cover_url, cover_pending, version)"
+                        + " VALUES (:id, :title, :author, :owned, :coverUrl, :coverPending, 0)")
+                .bind("id", id)
+                .bind("title", book.getTitle())
+                .bind("author", book.getAuthor())
+                .bind("owned", book.isOwned())
+                .bind("coverUrl", book.getCoverUrl())
+                .bind("coverPending", coverPending)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(new BookDTO(id, book.getTitle(), book.getAuthor(), book.isOwned(), book.getCoverUrl())));
+    }
+
+    /**
+     * Same as {@link BookRepository#markOwned(Collection)}.
+     */
+    public Mono<Long> markOwned(Collection<Long> ids) {
+        return databaseClient.sql("UPDATE book SET owned = TRUE, version = version + 1"
+                        + " WHERE id IN (:ids) AND owned = FALSE AND deleted_at IS NULL")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same as {@link BookRepository#deleteByIds(Collection)}.
+     */
+    public Mono<Long> deleteByIds(Collection<Long> ids) {
+        return databaseClient.sql("DELETE FROM book WHERE id IN (:ids) AND deleted_at IS NULL")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same as {@link BookRepository#softDeleteByIds(Collection, Instant)}.
+     */
+    public Mono<Long> softDeleteByIds(Collection<Long> ids, Instant deletedAt) {
+        return databaseClient.sql("UPDATE book SET deleted_at = :deletedAt, version = version + 1"
+                        + " WHERE id IN (:ids) AND deleted_at IS NULL")
+                .bind("deletedAt", deletedAt)
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Long> nextId() {
+        synchronized (this) {
+            if (nextId <= lastId) {
+                return Mono.just(nextId++);
+            }
+        }
+        return nextSequenceValue().map(value -> {
+            synchronized (this) {
+                // the value reserves the ids ending with it; ids below 1 are never used
+                nextId = Math.max(value - ID_ALLOCATION_SIZE + 1, 1) + 1;
+                lastId = value;
+                return nextId - 1;
+            }
+        });
+    }
+
+    private Mono<Long> nextSequenceValue() {
+        if (!mysql) {
+            return databaseClient.sql("SELECT NEXT VALUE FOR book_seq")
+                    .map(row -> row.get(0, Long.class))
+                    .one();
+        }
+        // MySQL has no sequences; like Hibernate, take the value from the book_seq table on one connection
+        return databaseClient.inConnection(connection ->
+                Mono.from(connection.createStatement("UPDATE book_seq SET next_val = LAST_INSERT_ID(next_val + "
+                                + ID_ALLOCATION_SIZE + ")").execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                        .then(Mono.from(connection.createStatement("SELECT LAST_INSERT_ID()").execute()))
+                        .flatMap(result -> Mono.from(result.map(row -> row.get(0, Long.class))))
+                        .map(next -> next - ID_ALLOCATION_SIZE));
+    }
+
+    private static BookDTO toDto(Readable row) {
+        return new BookDTO(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                row.get("author", String.class),
+                Boolean.TRUE.equals(row.get("owned", Boolean.class)),
+                row.get("cover_url", String.class));
+    }
+}
@@ -0,0 +1,313 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookChangeDTO;
+import pl.booklist.event.BookChangedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Feed of book changes sent to the subscribers as Server-Sent Events, so clients can keep their lists
+ * up to date instead of polling them.
+ * <p>
+ * Every change from a {@link BookChangedEvent} gets the next id and is kept in a ring buffer of the last
+ * {@code booklist.feed.history} changes. A subscriber reconnecting with {@code Last-Event-ID} gets the changes
+ * it has missed; when they are no longer in the buffer (or the id comes from before a restart) it gets
+ * a {@value #RESET_EVENT} event and has to reload the lists. New subscribers start with that event as well.
+ * <p>
+ * Subscribers hold an async request, not a thread. The changes are queued per subscriber and written by
+ * a few shared sender threads; a subscriber whose queue is full is disconnected and resumes when it reconnects.
+ * The feed carries the changes made by this application instance only.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class BookChangeFeed implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookChangeFeed.class);
+
+    /**
+     * Name of the event telling the subscriber to reload the lists; the changes after it follow as usual.
+     */
+    public static final String RESET_EVENT = "reset";
+
+    private static final FeedEvent HEARTBEAT = new FeedEvent(null, null, null);
+
+    private final ObjectMapper objectMapper;
+    private final BookListProperties.Feed settings;
+
+    /**
+     * Distinguishes the ids of this run from the ids given out before a restart.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FeedEvent[] history;
+    private long sequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public BookChangeFeed(ObjectMapper objectMapper, BookListProperties properties) {
+        this.objectMapper = objectMapper;
+        this.settings = properties.getFeed();
+        this.history = new FeedEvent[Math.max(settings.getHistory(), 1)];
+        // at most one task per subscriber is queued at a time
+        this.senders = new ThreadPoolExecutor(settings.getSenders(), settings.getSenders(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("book-feed-"));
+    }
+
+    /**
+     * Subscribes to the changes.
+     *
+     * @param lastEventId id of the last change received before reconnecting, or null for a new subscription
+     * @return emitter of the changes, or empty when the maximum number of subscribers has been reached
+     */
+    public Optional<SseEmitter> subscribe(String lastEventId) {
+        if (subscribers.size() >= settings.getMaxSubscribers()) {
+            rejectedCount.incrementAndGet();
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(settings.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, settings.getSubscriberBuffer());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        lock.lock();
+        try {
+            List<FeedEvent> missed = missedSince(lastEventId);
+            if (missed != null) {
+                missed.forEach(subscriber.queue::offer);
+            } else {
+                subscriber.queue.offer(new FeedEvent(idOf(sequence), RESET_EVENT, "{}"));
+            }
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        schedule(subscriber);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Sends the change to all subscribers.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(BookChangeDTO.of(event));
+        } catch (JsonProcessingException e) {
+            logger.warn("Nie udało się zapisać zmiany {} do wysłania subskrybentom.", event, e);
+            return;
+        }
+        String name = event.getType().name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        lock.lock();
+        try {
+            sequence++;
+            FeedEvent feedEvent = new FeedEvent(idOf(sequence), name, data);
+            history[(int) (sequence % history.length)] = feedEvent;
+            subscribers.forEach(subscriber -> deliver(subscriber, feedEvent));
+        } finally {
+            lock.unlock();
+        }
+        publishedCount.incrementAndGet();
+    }
+
+    /**
+     * Periodically sends a comment to all subscribers, so idle connections are not closed by proxies
+     * and the ones of clients which went away are noticed.
+     */
+    @Scheduled(initialDelayString = "${booklist.feed.heartbeat-interval:PT30S}",
+            fixedDelayString = "${booklist.feed.heartbeat-interval:PT30S}")
+    public void sendHeartbeats() {
+        subscribers.forEach(subscriber -> deliver(subscriber, HEARTBEAT));
+    }
+
+    /**
+     * @return id of the last change, as sent in the {@code id} field of the events
+     */
+    public String currentEventId() {
+        lock.lock();
+        try {
+            return idOf(sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booklist.feed.subscribers", this, BookChangeFeed::getSubscriberCount)
+                .description("Clients subscribed to the change feed")
+                .register(registry);
+        FunctionCounter.builder("booklist.feed.events", publishedCount, AtomicLong::get)
+                .description("Book changes sent to the change feed")
+                .register(registry);
+        FunctionCounter.builder("booklist.feed.dropped", droppedCount, AtomicLong::get)
+                .description("Subscribers disconnected because they could not keep up with the changes")
+                .register(registry);
+        FunctionCounter.builder("booklist.feed.rejected", rejectedCount, AtomicLong::get)
+                .description("Subscriptions rejected because the maximum number of subscribers was reached")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * @return the changes after the given id, or null when the subscriber has to reload the lists
+     */
+    private List<FeedEvent> missedSince(String lastEventId) {
+        long last = sequenceOf(lastEventId);
+        long oldest = Math.max(sequence - history.length, 0);
+        if (last < oldest || last > sequence || sequence - last > settings.getSubscriberBuffer()) {
+            return null;
+        }
+        List<FeedEvent> missed = new ArrayList<>((int) (sequence - last));
+        for (long i = last + 1; i <= sequence; i++) {
+            missed.add(history[(int) (i % history.length)]);
+        }
+        return missed;
+    }
+
+    private long sequenceOf(String eventId) {
+        String prefix = epoch + "-";
+        if (eventId == null || !eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String idOf(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private void deliver(Subscriber subscriber, FeedEvent event) {
+        if (subscriber.queue.offer(event)) {
+            schedule(subscriber);
+            return;
+        }
+        if (subscribers.remove(subscriber)) {
+            droppedCount.incrementAndGet();
+            logger.debug("Odłączono subskrybenta zmian, który nie nadąża z odbieraniem zdarzeń.");
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> send(subscriber));
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            FeedEvent event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(event.toSse());
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the emitter has been completed; the container completes the request
+            subscribers.remove(subscriber);
+            subscriber.queue.clear();
+            return;
+        }
+        subscriber.sending.set(false);
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Change ready to be sent; without an id it is sent as a heartbeat comment.
+     */
+    private record FeedEvent(String id, String name, String data) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            if (id == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(id).name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<FeedEvent> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        }
+    }
+}
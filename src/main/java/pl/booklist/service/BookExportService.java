@@ -0,0 +1,163 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookExportFormat;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the collection as CSV or NDJSON, optionally gzipped.
+ * Rows are read with plain JDBC from a forward-only cursor, {@code booklist.export.fetch-size} rows at a time,
+ * and written to the output as they come, without entities or DTOs, so memory use does not depend on
+ * the number of books. The export runs in a read-only transaction, so it is served by a replica when
+ * replicas are enabled.
+ *
+ * @author Paweł Opala
+ */
+@Service
+public class BookExportService {
+
+    private static final String SELECT_BOOKS = "SELECT id, title, author, owned, cover_url FROM book"
+            + " WHERE deleted_at IS NULL";
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("id", "title", "author", "owned", "coverUrl")
+            .build();
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public BookExportService(DataSource dataSource, ObjectMapper objectMapper, BookListProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getExport().getFetchSize());
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the books ordered by id to the output. The output is flushed but not closed.
+     *
+     * @param format format of the export
+     * @param owned  ownership status of the books, or null for all books
+     * @param gzip   whether to compress the export with gzip
+     * @param output receiver of the export
+     * @return number of exported books
+     * @throws IOException when writing to the output fails, e.g. because the client went away
+     */
+    @Transactional(readOnly = true)
+    public long export(BookExportFormat format, Boolean owned, boolean gzip, OutputStream output) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, GZIP_BUFFER_SIZE) : null;
+        OutputStream target = compressed != null ? compressed : output;
+        long count;
+        try (RowWriter writer = format == BookExportFormat.CSV ? new CsvRowWriter(target) : new NdjsonRowWriter(target)) {
+            count = jdbcTemplate.query(connection -> prepare(connection, owned), resultSet -> {
+                long rows = 0;
+                while (resultSet.next()) {
+                    writer.write(resultSet);
+                    rows++;
+                }
+                return rows;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (compressed != null) {
+            compressed.finish();
+        }
+        output.flush();
+        return count;
+    }
+
+    private static PreparedStatement prepare(Connection connection, Boolean owned) throws SQLException {
+        String sql = owned == null ? SELECT_BOOKS + " ORDER BY id" : SELECT_BOOKS + " AND owned = ? ORDER BY id";
+        PreparedStatement statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (owned != null) {
+            statement.setBoolean(1, owned);
+        }
+        return statement;
+    }
+
+    /**
+     * Writes the current row of the result set; closing flushes what is buffered without closing the output.
+     */
+    private interface RowWriter extends Closeable {
+
+        void write(ResultSet row) throws SQLException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final CSVPrinter printer;
+
+        private CsvRowWriter(OutputStream output) throws IOException {
+            this.printer = CSV_FORMAT.print(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException {
+            try {
+                printer.printRecord(row.getLong(1), row.getString(2), row.getString(3), row.getBoolean(4), row.getString(5));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            printer.flush();
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ResultSet row) throws SQLException {
+            try {
+                // same fields as BookDTO
+                generator.writeStartObject();
+                generator.writeNumberField("id", row.getLong(1));
+                generator.writeStringField("title", row.getString(2));
+                generator.writeStringField("author", row.getString(3));
+                generator.writeBooleanField("owned", row.getBoolean(4));
+                generator.writeStringField("coverUrl", row.getString(5));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
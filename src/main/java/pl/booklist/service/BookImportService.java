@@ -0,0 +1,279 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookImportResultDTO;
+import pl.booklist.event.BookChangedEvent;
+import pl.booklist.mapper.BookMapper;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Imports large lists of books sent as a JSON array or a CSV file.
+ * The input is read row by row, every row is validated against the {@link BookDTO} constraints
+ * and valid rows are saved in batches, each in its own transaction, so memory use does not depend
+ * on the size of the input. Rows that could not be saved are reported with their row number.
+ * When the input breaks off or turns malformed midway, the rows read so far are kept and the report
+ * ends with the row at which reading stopped, since earlier batches are already saved.
+ *
+ * @author Paweł Opala
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .build();
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final CoverService coverService;
+    private final CoverResolver coverResolver;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookListProperties.Import settings;
+    private final ExecutorService coverLookupExecutor;
+
+    public BookImportService(BookRepository bookRepository, BookMapper bookMapper, CoverService coverService,
+                             CoverResolver coverResolver, Validator validator, TransactionTemplate transactionTemplate,
+                             EntityManager entityManager, ObjectMapper objectMapper,
+                             ApplicationEventPublisher eventPublisher, BookListProperties properties) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+        this.coverService = coverService;
+        this.coverResolver = coverResolver;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.settings = properties.getImport();
+        this.coverLookupExecutor = Executors.newFixedThreadPool(settings.getCoverParallelism(),
+                new CustomizableThreadFactory("cover-import-"));
+    }
+
+    /**
+     * Imports books from a JSON array of {@link BookDTO} objects.
+     *
+     * @param input the JSON array, read as a stream
+     * @return report of the import
+     * @throws IllegalArgumentException when the input does not start with a JSON array
+     */
+    public BookImportResultDTO importJson(InputStream input) {
+        ImportRun run = new ImportRun();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Oczekiwano tablicy JSON z książkami.");
+            }
+
+            long row = 1;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        run.abort(row, "Niekompletna tablica JSON z książkami.");
+                        break;
+                    }
+                    JsonNode node = objectMapper.readTree(parser);
+                    try {
+                        run.accept(row, objectMapper.treeToValue(node, BookDTO.class));
+                    } catch (JsonProcessingException e) {
+                        run.reject(row, "Nieprawidłowe dane książki: " + e.getOriginalMessage());
+                    }
+                    row++;
+                }
+            } catch (IOException e) {
+                run.abort(row, "Nieprawidłowy format pliku JSON: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Nieprawidłowy format pliku JSON: " + e.getMessage(), e);
+        }
+
+        return run.finish();
+    }
+
+    /**
+     * Imports books from a CSV file with the header {@code title,author,owned,coverUrl}.
+     * The {@code owned} and {@code coverUrl} columns are optional.
+     *
+     * @param input the CSV file encoded in UTF-8, read as a stream
+     * @return report of the import
+     * @throws IllegalArgumentException when the header of the file cannot be read
+     */
+    public BookImportResultDTO importCsv(InputStream input) {
+        ImportRun run = new ImportRun();
+
+        try (CSVParser parser = CSV_FORMAT.parse(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            try {
+                for (CSVRecord record : parser) {
+                    run.accept(record.getRecordNumber(), new BookDTO(
+                            column(record, "title"),
+                            column(record, "author"),
+                            Boolean.parseBoolean(column(record, "owned")),
+                            column(record, "coverUrl")));
+                }
+            } catch (UncheckedIOException | IllegalStateException e) {
+                run.abort(parser.getRecordNumber() + 1, "Nieprawidłowy format pliku CSV: " + e.getMessage());
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Nieprawidłowy format pliku CSV: " + e.getMessage(), e);
+        }
+
+        return run.finish();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coverLookupExecutor.shutdownNow();
+    }
+
+    private static String column(CSVRecord record, String name) {
+        return record.isMapped(name) && record.isSet(name) ? record.get(name) : null;
+    }
+
+    private List<Book> saveBatch(List<BookDTO> batch) {
+        boolean resolveLater = coverResolver.isEnabled();
+        if (!resolveLater) {
+            fetchCovers(batch);
+        }
+
+        List<Book> entities = batch.stream()
+                .map(dto -> {
+                    boolean coverPending = dto.getCoverUrl() == null || dto.getCoverUrl().isBlank();
+                    if (coverPending) {
+                        dto.setCoverUrl(CoverService.DEFAULT_COVER_URL);
+                    }
+                    Book book = bookMapper.toEntity(dto);
+                    book.setCoverPending(coverPending);
+                    return book;
+                })
+                .toList();
+
+        List<Book> saved = transactionTemplate.execute(status -> {
+            List<Book> books = bookRepository.saveAll(entities);
+            entityManager.flush();
+            entityManager.clear();
+            return books;
+        });
+
+        if (resolveLater) {
+            saved.stream()
+                    .filter(Book::isCoverPending)
+                    .forEach(book -> coverResolver.submit(book.getId(), book.getTitle(), book.getAuthor()));
+        }
+        eventPublisher.publishEvent(BookChangedEvent.added(bookMapper.toDtoList(saved)));
+        return saved;
+    }
+
+    private void fetchCovers(List<BookDTO> batch) {
+        CompletableFuture<?>[] lookups = batch.stream()
+                .filter(dto -> dto.getCoverUrl() == null || dto.getCoverUrl().isBlank())
+                .map(dto -> CompletableFuture.runAsync(
+                        () -> dto.setCoverUrl(coverService.fetchCoverUrl(dto.getTitle(), dto.getAuthor())),
+                        coverLookupExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(lookups).join();
+    }
+
+    /**
+     * State of a single import: the rows waiting to be saved and the report.
+     */
+    private class ImportRun {
+
+        private final BookImportResultDTO result = new BookImportResultDTO();
+        private final List<BookDTO> batch = new ArrayList<>();
+        private final List<Long> batchRows = new ArrayList<>();
+
+        void accept(long row, BookDTO bookDTO) {
+            bookDTO.setId(null);
+            Set<ConstraintViolation<BookDTO>> violations = validator.validate(bookDTO);
+            if (!violations.isEmpty()) {
+                reject(row, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            batch.add(bookDTO);
+            batchRows.add(row);
+            if (batch.size() >= settings.getBatchSize()) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            result.addError(row, message, settings.getMaxReportedErrors());
+        }
+
+        /**
+         * Records the row at which the input could no longer be read. It is reported even when the report
+         * already holds the maximum number of errors, so the client knows the rows after it were not imported.
+         */
+        void abort(long row, String message) {
+            logger.warn("Import przerwany w wierszu {}: {}", row, message);
+            result.addError(row, message, Integer.MAX_VALUE);
+        }
+
+        BookImportResultDTO finish() {
+            flush();
+            logger.info("Zaimportowano {} książek, odrzucono {}.", result.getImported(), result.getFailed());
+            return result;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                result.addImported(saveBatch(batch).size());
+            } catch (RuntimeException e) {
+                logger.warn("Nie udało się zapisać partii {} książek.", batch.size(), e);
+                batchRows.forEach(row -> reject(row, "Nie udało się zapisać książki: " + e.getMessage()));
+            } finally {
+                batch.clear();
+                batchRows.clear();
+            }
+        }
+    }
+}
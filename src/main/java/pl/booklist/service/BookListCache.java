@@ -0,0 +1,77 @@
+package pl.booklist.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.event.BookChangedEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of the book lists served by {@link BookService}.
+ * Cached entries are keyed with the catalog version from {@link CatalogVersionTracker}, so after any change
+ * (made by this or another application instance) stale lists are no longer returned.
+ * Local changes also clear the cache right away.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class BookListCache implements MeterBinder {
+
+    private final CatalogVersionTracker catalogVersionTracker;
+    private final BookListProperties.Cache settings;
+    private final Cache<String, Object> cache;
+
+    public BookListCache(CatalogVersionTracker catalogVersionTracker, BookListProperties properties) {
+        this.catalogVersionTracker = catalogVersionTracker;
+        this.settings = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached value, loading it when missing or stale.
+     *
+     * @param key    key of the list, unique for the query and its parameters
+     * @param loader loads the list from the database
+     * @return the cached or freshly loaded list
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        if (!settings.isEnabled()) {
+            return loader.get();
+        }
+        long version = catalogVersionTracker.current();
+        return (T) cache.get(version + ":" + key, ignored -> loader.get());
+    }
+
+    /**
+     * Bumps the catalog version and clears the cache after books have been changed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        catalogVersionTracker.increment();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the cache
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "book-lists");
+    }
+}
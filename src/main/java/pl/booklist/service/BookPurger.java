@@ -0,0 +1,68 @@
+package pl.booklist.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.repository.BookRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Removes the rows of soft-deleted books in the background, see {@code booklist.delete.*}.
+ * Tombstones older than the retention are deleted in chunks, each in its own short transaction,
+ * so even a large delete never holds locks on the book table for long. A run stops after
+ * the configured number of chunks and the rest is left for the next run.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class BookPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookPurger.class);
+
+    private final BookRepository bookRepository;
+    private final BookListProperties.Delete settings;
+    private final Clock clock;
+
+    @Autowired
+    public BookPurger(BookRepository bookRepository, BookListProperties properties) {
+        this(bookRepository, properties, Clock.systemUTC());
+    }
+
+    BookPurger(BookRepository bookRepository, BookListProperties properties, Clock clock) {
+        this.bookRepository = bookRepository;
+        this.settings = properties.getDelete();
+        this.clock = clock;
+    }
+
+    /**
+     * Periodically removes tombstones older than the retention.
+     *
+     * @return number of removed books
+     */
+    @Scheduled(initialDelayString = "${booklist.delete.purge-initial-delay:PT1M}",
+            fixedDelayString = "${booklist.delete.purge-interval:PT10M}")
+    public int purge() {
+        Instant cutoff = clock.instant().minus(settings.getRetention());
+        int purged = 0;
+        for (int chunk = 0; chunk < settings.getPurgeMaxChunks(); chunk++) {
+            List<Long> ids = bookRepository.findTombstoneIds(cutoff, settings.getPurgeChunkSize());
+            if (ids.isEmpty()) {
+                break;
+            }
+            purged += bookRepository.purgeTombstones(ids);
+            if (ids.size() < settings.getPurgeChunkSize()) {
+                break;
+            }
+        }
+        if (purged > 0) {
+            logger.info("Usunięto trwale {} książek oznaczonych jako usunięte.", purged);
+        }
+        return purged;
+    }
+}
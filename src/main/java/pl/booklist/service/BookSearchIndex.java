@@ -0,0 +1,344 @@
+package pl.booklist.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.booklist.event.BookChangedEvent;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.repository.BookRepository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over the titles and authors of the books.
+ * Words are lower-cased and folded to ASCII (so "Lód" is found by "lod" and "Łódź" by "lodz"),
+ * and every word of the query matches all indexed words starting with it.
+ * <p>
+ * The index keeps the words with sorted arrays of book ids, and for every book the words it is indexed
+ * under (sharing the word instances of the index), so removing a book touches only its own postings.
+ * It is built at startup and updated from {@link BookChangedEvent}s.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, String[]> bookTerms = new HashMap<>();
+    private final Postings ownedBooks = new Postings();
+
+    public BookSearchIndex(BookRepository bookRepository, TransactionTemplate transactionTemplate) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Splits the text into lower-case words without diacritics.
+     *
+     * @param text text to split, may be null
+     * @return distinct words in order of their first occurrence
+     */
+    public static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        folded = DIACRITICS.matcher(folded).replaceAll("")
+                .replace('ł', 'l')
+                .replace('Ł', 'L')
+                .toLowerCase(Locale.ROOT);
+
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Builds the index from all books in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<BookDTO> books = bookRepository.streamAllDtos()) {
+                books.forEach(book -> add(book.getId(), book.getTitle(), book.getAuthor(), book.isOwned()));
+            }
+        });
+        logger.info("Zbudowano indeks wyszukiwania: {} książek, {} słów w {} ms.",
+                size(), termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Keeps the index up to date after books have been changed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.getType()) {
+            case ADDED -> event.getBooks().forEach(book ->
+                    add(book.getId(), book.getTitle(), book.getAuthor(), book.isOwned()));
+            case DELETED -> remove(event.getBookIds());
+            case OWNED -> event.getBookIds().forEach(this::markOwned);
+            default -> {
+                // the cover is not indexed
+            }
+        }
+    }
+
+    /**
+     * Finds books whose title or author contains words starting with every word of the query.
+     *
+     * @param query words to look for
+     * @param owned ownership status of the books, or null for all books
+     * @param limit maximum number of ids to return
+     * @return ids of the matching books in ascending order
+     */
+    public List<Long> search(String query, Boolean owned, int limit) {
+        Set<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<long[]> matches = new ArrayList<>(queryTokens.size());
+            for (String token : queryTokens) {
+                long[] ids = idsWithPrefix(token);
+                if (ids.length == 0) {
+                    return List.of();
+                }
+                matches.add(ids);
+            }
+
+            matches.sort(Comparator.comparingInt(ids -> ids.length));
+            long[] result = matches.get(0);
+            for (int i = 1; i < matches.size() && result.length > 0; i++) {
+                result = intersect(result, matches.get(i));
+            }
+
+            return Arrays.stream(result)
+                    .filter(id -> owned == null || ownedBooks.contains(id) == owned)
+                    .limit(limit)
+                    .boxed()
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bookTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of distinct indexed words
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(Long id, String title, String author, boolean owned) {
+        Set<String> bookTokens = new TreeSet<>(tokenize(title));
+        bookTokens.addAll(tokenize(author));
+
+        lock.writeLock().lock();
+        try {
+            removeIndexed(id);
+            String[] indexedTerms = new String[bookTokens.size()];
+            int i = 0;
+            for (String token : bookTokens) {
+                terms.computeIfAbsent(token, key -> new Postings()).add(id);
+                // keep the instance held by the index, not a copy per book
+                indexedTerms[i++] = terms.ceilingKey(token);
+            }
+            bookTerms.put(id, indexedTerms);
+            if (owned) {
+                ownedBooks.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::removeIndexed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the book from the postings of its own words. Must be called with the write lock held.
+     */
+    private void removeIndexed(Long id) {
+        String[] indexedTerms = bookTerms.remove(id);
+        if (indexedTerms == null) {
+            return;
+        }
+        ownedBooks.remove(id);
+        for (String term : indexedTerms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size() == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    void markOwned(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (bookTerms.containsKey(id)) {
+                ownedBooks.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long[] idsWithPrefix(String prefix) {
+        Collection<Postings> matching = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        if (matching.size() == 1) {
+            return matching.iterator().next().toArray();
+        }
+
+        int total = 0;
+        for (Postings postings : matching) {
+            total += postings.size();
+        }
+        long[] ids = new long[total];
+        int offset = 0;
+        for (Postings postings : matching) {
+            offset = postings.copyTo(ids, offset);
+        }
+        Arrays.sort(ids);
+        return Arrays.stream(ids).distinct().toArray();
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Sorted set of book ids kept in a growable primitive array (8 bytes per id).
+     * New books get increasing ids, so adding is usually an append. Not thread safe,
+     * guarded by the lock of the index.
+     */
+    private static final class Postings {
+
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int copyTo(long[] target, int offset) {
+            System.arraycopy(ids, 0, target, offset, size);
+            return offset + size;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+}
@@ -1,12 +1,30 @@
 package pl.booklist.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.booklist.config.BookListProperties;
 import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.dto.BookShelfDTO;
+import pl.booklist.dto.BookSort;
+import pl.booklist.event.BookChangedEvent;
 import pl.booklist.mapper.BookMapper;
 import pl.booklist.model.Book;
 import pl.booklist.repository.BookRepository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 
@@ -15,48 +33,192 @@ import java.util.List;
  * Service layer for managing {@link Book} entities.
  * Provides business logic and access to book-related operations.
  * Delegates persistence task to {@link BookRepository}.
+ * List reads are served through {@link BookListCache} and read books straight into DTOs;
+ * every change publishes a {@link BookChangedEvent}.
+ * Reads run in read-only transactions, which go to a read replica when replicas are enabled
+ * (see {@code ReplicaRoutingConfig}); changes always go to the primary.
+ * Every public method is timed as the {@code booklist.service} metric, tagged with the method name.
  *
  * @author Paweł Opala
  */
 @Service
+@Timed(value = "booklist.service", description = "Time spent in BookService methods")
 public class BookService {
 
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
     private final CoverService coverService;
+    private final CoverResolver coverResolver;
+    private final BookListCache bookListCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogVersionTracker catalogVersionTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookListProperties.Delete deleteSettings;
 
-    public BookService(BookRepository bookRepository, BookMapper bookMapper, CoverService coverService) {
+    public BookService(BookRepository bookRepository, BookMapper bookMapper, CoverService coverService,
+                       CoverResolver coverResolver, BookListCache bookListCache, BookSearchIndex bookSearchIndex,
+                       CatalogVersionTracker catalogVersionTracker, ApplicationEventPublisher eventPublisher,
+                       BookListProperties properties) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
         this.coverService = coverService;
+        this.coverResolver = coverResolver;
+        this.bookListCache = bookListCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.catalogVersionTracker = catalogVersionTracker;
+        this.eventPublisher = eventPublisher;
+        this.deleteSettings = properties.getDelete();
     }
 
+    @Transactional(readOnly = true)
     public List<BookDTO> findAllBooks() {
-        List<Book> books = bookRepository.findAll();
-        return books.stream()
-                .map(bookMapper::toDto)
-                .toList();
+        return bookListCache.get("all", bookRepository::findAllDtos);
     }
 
+    @Transactional(readOnly = true)
     public List<BookDTO> findOwnedBooks() {
-        List<Book> books = bookRepository.findByOwnedTrue();
-        return books.stream()
-                .map(bookMapper::toDto)
-                .toList();
+        return bookListCache.get("owned", () -> bookRepository.findDtosByOwned(true));
     }
 
+    @Transactional(readOnly = true)
     public List<BookDTO> findUnownedBooks() {
-        List<Book> books = bookRepository.findByOwnedFalse();
-        return books.stream()
-                .map(bookMapper::toDto)
+        return bookListCache.get("unowned", () -> bookRepository.findDtosByOwned(false));
+    }
+
+    /**
+     * Returns a single page of books using keyset pagination on the id.
+     *
+     * @param owned   ownership status of the books, or null for all books
+     * @param afterId id of the last book of the previous page (0 for the first page)
+     * @param size    maximum number of books on the page
+     * @return page of books with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public BookPageDTO findBooksPage(Boolean owned, long afterId, int size) {
+        return bookListCache.get("page:" + owned + ":" + afterId + ":" + size, () -> {
+            Limit limit = Limit.of(size + 1);
+            List<BookDTO> books = owned == null
+                    ? bookRepository.findDtoPage(afterId, limit)
+                    : bookRepository.findDtoPageByOwned(owned, afterId, limit);
+
+            return toPage(books, size);
+        });
+    }
+
+    /**
+     * Returns a single page of owned or unowned books in the requested order, using keyset pagination
+     * on the sort key and the id.
+     *
+     * @param owned    ownership status of the books
+     * @param sort     order of the books
+     * @param afterKey sort key of the last book of the previous page ({@link BookPageDTO#getNextKey()}),
+     *                 null or empty for the first page; ignored for {@link BookSort#ADDED}
+     * @param afterId  id of the last book of the previous page (0 for the first page)
+     * @param size     maximum number of books on the page
+     * @return page of books with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public BookPageDTO findBooksPage(boolean owned, BookSort sort, String afterKey, long afterId, int size) {
+        if (sort == BookSort.ADDED) {
+            return findBooksPage(owned, afterId, size);
+        }
+        String key = afterKey == null ? "" : afterKey;
+        return bookListCache.get("page:" + owned + ":" + sort.getParam() + ":" + afterId + ":" + size + ":" + key, () -> {
+            Limit limit = Limit.of(size + 1);
+            List<BookDTO> books = sort == BookSort.TITLE
+                    ? bookRepository.findDtoPageByOwnedOrderByTitle(owned, key, afterId, limit)
+                    : bookRepository.findDtoPageByOwnedOrderByAuthor(owned, key, afterId, limit);
+
+            return toPage(books, size, sort);
+        });
+    }
+
+    /**
+     * Returns the first page of both sections of the home page, fetched with a single query.
+     *
+     * @param sectionSize maximum number of books in each section
+     * @return first pages of the owned books and of the wishlist
+     */
+    @Transactional(readOnly = true)
+    public BookShelfDTO findShelf(int sectionSize) {
+        return bookListCache.get("shelf:" + sectionSize, () -> {
+            Map<Boolean, List<BookDTO>> sections = bookRepository.findShelf(sectionSize + 1).stream()
+                    .collect(Collectors.partitioningBy(BookDTO::isOwned));
+
+            return new BookShelfDTO(
+                    toPage(sections.get(true), sectionSize),
+                    toPage(sections.get(false), sectionSize));
+        });
+    }
+
+    /**
+     * Returns the entity tag of the book lists, derived from the catalog version which changes with every
+     * change of the books. Lets clients skip downloading unchanged lists without querying the books.
+     *
+     * @return strong entity tag of the current state of the catalog
+     */
+    public String getListETag() {
+        return "\"books-" + catalogVersionTracker.current() + "\"";
+    }
+
+    /**
+     * Searches books by the words of their title and author using {@link BookSearchIndex}.
+     *
+     * @param query words to look for, matched as prefixes and without diacritics
+     * @param owned ownership status of the books, or null for all books
+     * @param limit maximum number of books to return
+     * @return matching books ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<BookDTO> searchBooks(String query, Boolean owned, int limit) {
+        List<Long> ids = bookSearchIndex.search(query, owned, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, BookDTO> books = bookRepository.findDtosByIdIn(ids).stream()
+                .collect(Collectors.toMap(BookDTO::getId, Function.identity()));
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
+    /**
+     * Passes every book to the consumer one by one, without loading the whole table into memory.
+     * Books are read as DTOs, so nothing accumulates in the persistence context.
+     *
+     * @param owned    ownership status of the books, or null for all books
+     * @param consumer receiver of the mapped books
+     */
+    @Transactional(readOnly = true)
+    public void streamBooks(Boolean owned, Consumer<BookDTO> consumer) {
+        try (Stream<BookDTO> books = owned == null
+                ? bookRepository.streamAllDtos()
+                : bookRepository.streamDtosByOwned(owned)) {
+            books.forEach(consumer);
+        }
+    }
+
+    /**
+     * Saves a new book. When no cover URL is given, the cover is resolved in the background
+     * by {@link CoverResolver} and the book is saved with the default cover in the meantime,
+     * unless background resolution is disabled.
+     *
+     * @param bookDTO the book to save
+     * @return the saved book
+     */
     public BookDTO addBook(BookDTO bookDTO) {
         String coverUrl = bookDTO.getCoverUrl();
+        boolean coverPending = false;
 
         if (coverUrl == null || coverUrl.isBlank()) {
-            coverUrl = coverService.fetchCoverUrl(bookDTO.getTitle(), bookDTO.getAuthor());
+            if (coverResolver.isEnabled()) {
+                coverUrl = CoverService.DEFAULT_COVER_URL;
+                coverPending = true;
+            } else {
+                coverUrl = coverService.fetchCoverUrl(bookDTO.getTitle(), bookDTO.getAuthor());
+            }
         }
 
         if (coverUrl == null || coverUrl.isBlank()) {
@@ -66,18 +228,111 @@ public class BookService {
         bookDTO.setCoverUrl(coverUrl);
 
         var bookEntity = bookMapper.toEntity(bookDTO);
+        bookEntity.setCoverPending(coverPending);
         var savedBook = bookRepository.save(bookEntity);
 
-        return bookMapper.toDto(savedBook);
+        if (coverPending) {
+            coverResolver.submit(savedBook.getId(), savedBook.getTitle(), savedBook.getAuthor());
+        }
+
+        BookDTO savedBookDTO = bookMapper.toDto(savedBook);
+        eventPublisher.publishEvent(BookChangedEvent.added(List.of(savedBookDTO)));
+        return savedBookDTO;
+    }
+
+    /**
+     * @param id the id of the book
+     * @return URL of the cover of the book, or empty when there is no such book
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findCoverUrl(Long id) {
+        return bookRepository.findCoverUrlById(id);
     }
 
+    /**
+     * Deletes the book with a single statement, see {@link #deleteAll(Collection)}.
+     *
+     * @param id the id of the book
+     */
     public void deleteById(Long id) {
-        bookRepository.deleteById(id);
+        deleteAll(List.of(id));
     }
+
+    /**
+     * Deletes the books with a single statement, without loading them. With soft deletes enabled
+     * the books only get a tombstone and their rows are removed later by {@link BookPurger}.
+     * Books which do not exist are skipped.
+     *
+     * @param ids the ids of the books
+     * @return number of deleted books
+     */
+    public int deleteAll(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctIds.isEmpty()) {
+            return 0;
+        }
+
+        int deleted = deleteSettings.isSoft()
+                ? bookRepository.softDeleteByIds(distinctIds, Instant.now())
+                : bookRepository.deleteByIds(distinctIds);
+        if (deleted > 0) {
+            eventPublisher.publishEvent(BookChangedEvent.deleted(distinctIds));
+        }
+        return deleted;
+    }
+
+    /**
+     * Moves the book to the collection with a single update statement.
+     *
+     * @param id the id of the book
+     * @throws IllegalArgumentException when there is no book with the id
+     */
+    @Transactional
     public void markAsOwned(Long id) {
-        Book book = bookRepository.findById(id) .orElseThrow(() -> new IllegalArgumentException("Nie znaleziono książki o ID: " + id));
-        book.setOwned(true);
-        bookRepository.save(book);
+        if (markAllAsOwned(List.of(id)) == 0 && !bookRepository.existsById(id)) {
+            throw new IllegalArgumentException("Nie znaleziono książki o ID: " + id);
+        }
     }
 
+    /**
+     * Moves the books to the collection with a single update statement.
+     * Books which are already owned or do not exist are skipped.
+     *
+     * @param ids the ids of the books
+     * @return number of books moved to the collection
+     */
+    public int markAllAsOwned(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctIds.isEmpty()) {
+            return 0;
+        }
+
+        int updated = bookRepository.markOwned(distinctIds);
+        if (updated > 0) {
+            eventPublisher.publishEvent(BookChangedEvent.owned(distinctIds));
+        }
+        return updated;
+    }
+
+    /**
+     * Cuts the books fetched with one extra row to a page; the extra row only tells that there is a next page.
+     */
+    private BookPageDTO toPage(List<BookDTO> books, int size) {
+        return toPage(books, size, BookSort.ADDED);
+    }
+
+    private BookPageDTO toPage(List<BookDTO> books, int size, BookSort sort) {
+        if (books.size() <= size) {
+            return new BookPageDTO(books, null);
+        }
+        List<BookDTO> items = books.subList(0, size);
+        BookDTO last = items.get(items.size() - 1);
+        return new BookPageDTO(items, last.getId(), sort.keyOf(last));
+    }
 }
@@ -0,0 +1,101 @@
+package pl.booklist.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.model.CatalogVersion;
+import pl.booklist.repository.CatalogVersionRepository;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps track of the shared counter of catalog changes.
+ * The counter is read from the database at most once per configured interval,
+ * so changes made by other application instances are noticed with a bounded delay
+ * while most reads need no database round trip. Local changes are visible immediately.
+ * <p>
+ * The counter is always read and written in a new read-write transaction, so it comes from the primary
+ * even when the caller runs in a read-only transaction served by a replica, and an increment made after
+ * the commit of a change does not join the finished transaction. Only one thread refreshes at a time,
+ * the others use the last known version meanwhile; the version never goes backwards.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class CatalogVersionTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersionTracker.class);
+
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final TransactionTemplate primaryTransaction;
+    private final long checkIntervalNanos;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile long version;
+    private volatile long checkedAt;
+
+    public CatalogVersionTracker(CatalogVersionRepository catalogVersionRepository,
+                                 PlatformTransactionManager transactionManager, BookListProperties properties) {
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.checkIntervalNanos = properties.getCache().getVersionCheckInterval().toNanos();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!catalogVersionRepository.existsById(CatalogVersion.SINGLETON_ID)) {
+            try {
+                catalogVersionRepository.save(new CatalogVersion(CatalogVersion.SINGLETON_ID, 0L));
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Licznik zmian katalogu został utworzony przez inną instancję.");
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * @return current version of the catalog, re-read from the primary when the check interval has passed
+     */
+    public long current() {
+        if (System.nanoTime() - checkedAt >= checkIntervalNanos && refreshLock.tryLock()) {
+            try {
+                refresh();
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Records a change of the catalog, visible to all application instances.
+     *
+     * @return the new version of the catalog
+     */
+    public long increment() {
+        return update(primaryTransaction.execute(status -> {
+            catalogVersionRepository.increment(CatalogVersion.SINGLETON_ID);
+            return catalogVersionRepository.findVersion(CatalogVersion.SINGLETON_ID).orElse(0L);
+        }));
+    }
+
+    private void refresh() {
+        update(primaryTransaction.execute(status ->
+                catalogVersionRepository.findVersion(CatalogVersion.SINGLETON_ID).orElse(0L)));
+    }
+
+    private synchronized long update(Long current) {
+        if (current != null && current > version) {
+            version = current;
+        }
+        checkedAt = System.nanoTime();
+        return version;
+    }
+}
@@ -0,0 +1,208 @@
+package pl.booklist.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.model.CoverLookup;
+import pl.booklist.repository.CoverLookupRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of cover lookups, keyed on the normalized title and author of the book.
+ * Both found covers and misses (books without a cover in Google Books) are kept,
+ * each with its own time to live. Optionally lookups are also stored in the database,
+ * so the cache survives restarts.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class CoverCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverCache.class);
+
+    private final CoverLookupRepository coverLookupRepository;
+    private final BookListProperties.Cover.Cache settings;
+    private final Cache<String, Entry> cache;
+    private final AtomicLong persistentHitCount = new AtomicLong();
+
+    public CoverCache(CoverLookupRepository coverLookupRepository, BookListProperties properties) {
+        this.coverLookupRepository = coverLookupRepository;
+        this.settings = properties.getCover().getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfter(new EntryExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Builds the cache key of the book, ignoring case and redundant whitespace.
+     *
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return normalized key
+     */
+    public static String keyOf(String title, String author) {
+        return normalize(title) + "|" + normalize(author);
+    }
+
+    /**
+     * Returns the cached lookup of the book.
+     *
+     * @param key key built by {@link #keyOf(String, String)}
+     * @return cached lookup, or null when the book was not looked up recently
+     */
+    public Entry get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null || !settings.isPersistent()) {
+            return entry;
+        }
+
+        try {
+            entry = coverLookupRepository.findById(key)
+                    .map(lookup -> new Entry(lookup.getCoverUrl(), lookup.getResolvedAt()))
+                    .filter(stored -> !stored.isExpired(ttlOf(stored)))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            logger.warn("Nie udało się odczytać zapisanej okładki dla klucza {}.", key, e);
+            return null;
+        }
+
+        if (entry != null) {
+            persistentHitCount.incrementAndGet();
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the lookup of the book.
+     *
+     * @param key      key built by {@link #keyOf(String, String)}
+     * @param coverUrl URL of the found cover, or null when the book has no cover
+     */
+    public void put(String key, String coverUrl) {
+        Entry entry = new Entry(coverUrl, Instant.now());
+        cache.put(key, entry);
+
+        if (settings.isPersistent()) {
+            try {
+                coverLookupRepository.save(new CoverLookup(key, coverUrl, entry.storedAt()));
+            } catch (RuntimeException e) {
+                logger.warn("Nie udało się zapisać okładki dla klucza {}.", key, e);
+            }
+        }
+    }
+
+    /**
+     * Removes expired lookups from the database.
+     */
+    @Scheduled(fixedDelayString = "${booklist.cover.cache.purge-interval:PT1H}")
+    public void purgeExpired() {
+        if (!settings.isPersistent()) {
+            return;
+        }
+        Duration longestTtl = settings.getTtl().compareTo(settings.getNegativeTtl()) >= 0
+                ? settings.getTtl() : settings.getNegativeTtl();
+        int removed = coverLookupRepository.deleteResolvedBefore(Instant.now().minus(longestTtl));
+        logger.debug("Usunięto {} wygasłych okładek z pamięci podręcznej.", removed);
+    }
+
+    /**
+     * @return true when lookups are also stored in the database, i.e. {@link #get} and {@link #put} may block
+     */
+    public boolean isPersistent() {
+        return settings.isPersistent();
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the in-memory tier
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return number of lookups served from the database after an in-memory miss
+     */
+    public long getPersistentHitCount() {
+        return persistentHitCount.get();
+    }
+
+    /**
+     * @return the underlying in-memory cache, e.g. for metrics
+     */
+    public Cache<String, Entry> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "covers");
+        FunctionCounter.builder("booklist.cover.cache.persistent.hits", persistentHitCount, AtomicLong::get)
+                .description("Cover lookups served from the database after an in-memory miss")
+                .register(registry);
+    }
+
+    private Duration ttlOf(Entry entry) {
+        return entry.coverUrl() != null ? settings.getTtl() : settings.getNegativeTtl();
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cached result of a cover lookup.
+     *
+     * @param coverUrl URL of the found cover, or null when Google Books has no cover for the book
+     * @param storedAt moment of the lookup
+     */
+    public record Entry(String coverUrl, Instant storedAt) {
+
+        public Optional<String> cover() {
+            return Optional.ofNullable(coverUrl);
+        }
+
+        boolean isExpired(Duration ttl) {
+            return storedAt.plus(ttl).isBefore(Instant.now());
+        }
+    }
+
+    private class EntryExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            Duration remaining = Duration.between(Instant.now(), entry.storedAt().plus(ttlOf(entry)));
+            return Math.max(remaining.toNanos(), 0L);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package pl.booklist.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import pl.booklist.config.BookListProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of the Google Books calls. After a number of consecutive failures (timeouts, I/O errors,
+ * 5xx and 429 responses) calls are skipped for a while, so lookups fall back to the default cover at once
+ * instead of waiting for timeouts. Then a single trial call decides whether the circuit closes again.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class CoverCircuitBreaker implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverCircuitBreaker.class);
+
+    /**
+     * State of the circuit.
+     */
+    public enum State {
+        /** Calls go through. */
+        CLOSED,
+        /** Calls are skipped. */
+        OPEN,
+        /** A single trial call is in flight, other calls are skipped. */
+        HALF_OPEN
+    }
+
+    private final BookListProperties.Cover.CircuitBreaker settings;
+    private final LongSupplier nanoClock;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    @Autowired
+    public CoverCircuitBreaker(BookListProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    CoverCircuitBreaker(BookListProperties properties, LongSupplier nanoClock) {
+        this.settings = properties.getCover().getCircuitBreaker();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Tells whether the call may be made. Every permitted call must be followed by
+     * {@link #onSuccess()} or {@link #onFailure(RuntimeException)}.
+     *
+     * @return false when the circuit is open and the call should be skipped
+     */
+    public synchronized boolean tryAcquire() {
+        if (!settings.isEnabled() || state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= settings.getOpenDuration().toNanos()) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a call which got a response from the upstream.
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Google Books odpowiada ponownie, wznowiono pobieranie okładek.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a failed call. Client errors other than 429 mean that the upstream works, so they count as success.
+     *
+     * @param error the error of the call
+     */
+    public synchronized void onFailure(RuntimeException error) {
+        if (!isUpstreamFailure(error)) {
+            onSuccess();
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= settings.getFailureThreshold()) {
+            if (state != State.OPEN) {
+                logger.warn("Google Books nie odpowiada ({} błędów z rzędu), okładki nie będą pobierane przez {}.",
+                        consecutiveFailures, settings.getOpenDuration());
+            }
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of calls skipped because the circuit was open
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booklist.cover.circuit.open", this, breaker -> breaker.getState() == State.CLOSED ? 0 : 1)
+                .description("Whether calls to Google Books are being skipped (1) or not (0)")
+                .register(registry);
+        FunctionCounter.builder("booklist.cover.circuit.rejected", rejectedCount, AtomicLong::get)
+                .description("Calls to Google Books skipped because the circuit was open")
+                .register(registry);
+    }
+
+    private static boolean isUpstreamFailure(RuntimeException error) {
+        if (error instanceof HttpClientErrorException clientError) {
+            return clientError.getStatusCode().value() == 429;
+        }
+        if (error instanceof WebClientResponseException responseError && responseError.getStatusCode().is4xxClientError()) {
+            return responseError.getStatusCode().value() == 429;
+        }
+        return error instanceof RestClientException || error instanceof WebClientException;
+    }
+}
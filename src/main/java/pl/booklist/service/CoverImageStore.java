@@ -0,0 +1,335 @@
+package pl.booklist.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestTemplate;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.event.BookChangedEvent;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Content-addressed disk store of cover images. Each image is downloaded once and stored under the SHA-256
+ * of its content, so books sharing a cover share the file; a small file per source URL points at the content.
+ * Resized variants for the book grid are generated on first use and kept next to the originals.
+ * <p>
+ * Images are downloaded in the background as soon as a book gets its cover, so serving a page
+ * does not wait for Google Books.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class CoverImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverImageStore.class);
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif",
+            "image/webp", "webp");
+
+    private final RestTemplate restTemplate;
+    private final BookListProperties.Cover.Images settings;
+    private final Path blobs;
+    private final Path sources;
+    private final Path variants;
+    private final Path temp;
+    private final ExecutorService downloads;
+    private final Set<String> pendingDownloads = ConcurrentHashMap.newKeySet();
+
+    public CoverImageStore(RestTemplate restTemplate, BookListProperties properties) {
+        this.restTemplate = restTemplate;
+        this.settings = properties.getCover().getImages();
+        Path directory = settings.getDirectory().toAbsolutePath();
+        this.blobs = directory.resolve("blobs");
+        this.sources = directory.resolve("sources");
+        this.variants = directory.resolve("variants");
+        this.temp = directory.resolve("tmp");
+        try {
+            for (Path path : List.of(blobs, sources, variants, temp)) {
+                Files.createDirectories(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Nie można utworzyć katalogu okładek " + directory, e);
+        }
+        this.downloads = Executors.newFixedThreadPool(settings.getDownloadThreads(),
+                new CustomizableThreadFactory("cover-image-"));
+    }
+
+    /**
+     * @param url URL of a cover
+     * @return true when the image is downloaded and served locally, false when browsers should load it directly
+     */
+    public boolean isStorable(String url) {
+        if (url == null) {
+            return false;
+        }
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            return ("http".equals(scheme) || "https".equals(scheme))
+                    && uri.getHost() != null
+                    && settings.getAllowedHosts().contains(uri.getHost().toLowerCase(Locale.ROOT));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the stored image of the cover, resized to the grid width closest to the requested one.
+     *
+     * @param url   URL of the cover
+     * @param width requested width in pixels, or null for the original image
+     * @return the stored image, or empty when it has not been downloaded yet
+     */
+    public Optional<StoredImage> find(String url, Integer width) {
+        Path original = originalOf(url);
+        if (original == null) {
+            return Optional.empty();
+        }
+        Integer variantWidth = variantWidth(width);
+        if (variantWidth == null) {
+            return Optional.of(StoredImage.of(original, contentHashOf(original)));
+        }
+        try {
+            return Optional.of(variantOf(original, variantWidth));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Nie udało się przeskalować okładki {}.", original, e);
+            return Optional.of(StoredImage.of(original, contentHashOf(original)));
+        }
+    }
+
+    /**
+     * Downloads the cover in the background unless it is already stored or being downloaded.
+     *
+     * @param url URL of the cover
+     */
+    public void prefetch(String url) {
+        if (!isStorable(url) || originalOf(url) != null || !pendingDownloads.add(url)) {
+            return;
+        }
+        try {
+            downloads.execute(() -> {
+                try {
+                    download(url);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Nie udało się pobrać obrazu okładki {}.", url, e);
+                } finally {
+                    pendingDownloads.remove(url);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingDownloads.remove(url);
+        }
+    }
+
+    /**
+     * Downloads the covers of added books and newly resolved covers.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.getType()) {
+            case ADDED -> event.getBooks().forEach(book -> prefetch(book.getCoverUrl()));
+            case COVER_RESOLVED -> prefetch(event.getCoverUrl());
+            default -> {
+                // the cover does not change
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        downloads.shutdownNow();
+    }
+
+    private Path originalOf(String url) {
+        Path source = sources.resolve(sha256(url.getBytes(StandardCharsets.UTF_8)));
+        try {
+            if (!Files.exists(source)) {
+                return null;
+            }
+            Path blob = blobs.resolve(Files.readString(source).strip());
+            return Files.exists(blob) ? blob : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void download(String url) throws IOException {
+        Path part = Files.createTempFile(temp, "download-", ".part");
+        try {
+            String blobName = restTemplate.execute(URI.create(url), HttpMethod.GET, null, response -> {
+                MediaType type = response.getHeaders().getContentType();
+                String extension = type == null ? null : EXTENSIONS.get(type.getType() + "/" + type.getSubtype());
+                if (extension == null) {
+                    throw new IOException("Adres nie wskazuje obrazu: " + type);
+                }
+                String hash = copyLimited(response.getBody(), part);
+                return hash.substring(0, 2) + "/" + hash + "." + extension;
+            });
+
+            Path blob = blobs.resolve(blobName);
+            Files.createDirectories(blob.getParent());
+            if (Files.exists(blob)) {
+                Files.delete(part);
+            } else {
+                Files.move(part, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            writeAtomically(sources.resolve(sha256(url.getBytes(StandardCharsets.UTF_8))),
+                    blobName.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * Copies the body to the file while hashing it, failing when it exceeds the maximum image size.
+     *
+     * @return SHA-256 of the content
+     */
+    private String copyLimited(InputStream body, Path target) throws IOException {
+        MessageDigest digest = newSha256();
+        long limit = settings.getMaxSize().toBytes();
+        long copied = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream in = body; OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                copied += read;
+                if (copied > limit) {
+                    throw new IOException("Obraz przekracza " + settings.getMaxSize());
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private StoredImage variantOf(Path original, int width) throws IOException {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String hash = fileName.substring(0, dot);
+        String extension = fileName.substring(dot + 1);
+        String tag = hash + "-w" + width;
+        Path variant = variants.resolve(tag + "." + extension);
+        if (Files.exists(variant)) {
+            return StoredImage.of(variant, tag);
+        }
+
+        Path part = Files.createTempFile(temp, "variant-", ".part");
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null || source.getWidth() <= width || !ImageIO.write(resize(source, width), extension, part.toFile())) {
+                // unreadable format or already small enough: the variant is the original image
+                Files.copy(original, part, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(part, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+        return StoredImage.of(variant, tag);
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round(source.getHeight() * (double) width / source.getWidth()));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private Integer variantWidth(Integer requested) {
+        if (requested == null || settings.getWidths().isEmpty()) {
+            return null;
+        }
+        List<Integer> widths = settings.getWidths().stream().sorted().toList();
+        return widths.stream()
+                .filter(width -> width >= requested)
+                .findFirst()
+                .orElse(widths.get(widths.size() - 1));
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path part = Files.createTempFile(temp, "source-", ".part");
+        try {
+            Files.write(part, content);
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private static String contentHashOf(Path blob) {
+        String fileName = blob.getFileName().toString();
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    private static String sha256(byte[] value) {
+        return HexFormat.of().formatHex(newSha256().digest(value));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Image file ready to be served.
+     *
+     * @param path        location of the file
+     * @param tag         strong entity tag, derived from the content hash and the variant
+     * @param contentType media type of the image
+     */
+    public record StoredImage(Path path, String tag, MediaType contentType) {
+
+        static StoredImage of(Path path, String tag) {
+            MediaType contentType = MediaTypeFactory.getMediaType(path.getFileName().toString())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return new StoredImage(path, tag, contentType);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package pl.booklist.service;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown instead of calling Google Books while {@link CoverCircuitBreaker} is open.
+ * Handled like any other failed call, so lookups fall back to the default cover or are retried later.
+ *
+ * @author Paweł Opala
+ */
+public class CoverLookupUnavailableException extends RestClientException {
+
+    public CoverLookupUnavailableException(String message) {
+        super(message);
+    }
+}
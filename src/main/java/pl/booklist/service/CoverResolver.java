@@ -0,0 +1,219 @@
+package pl.booklist.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.event.BookChangedEvent;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves book covers in the background, so adding a book never waits for Google Books.
+ * Books are saved with the default cover and the pending flag set, then their covers are looked up
+ * by a fixed number of workers draining a bounded queue. Failed lookups are retried with exponential
+ * backoff; after the last attempt the default cover is kept.
+ * <p>
+ * Books that could not be queued (full queue, restart) stay pending and are picked up again
+ * by the periodic sweep.
+ *
+ * @author Paweł Opala
+ */
+@Component
+public class CoverResolver implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverResolver.class);
+
+    private final CoverService coverService;
+    private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookListProperties.Cover.Async settings;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Set<Long> queuedBooks = ConcurrentHashMap.newKeySet();
+    private final AtomicLong resolvedCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CoverResolver(CoverService coverService, BookRepository bookRepository,
+                         ApplicationEventPublisher eventPublisher, BookListProperties properties) {
+        this.coverService = coverService;
+        this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+        this.settings = properties.getCover().getAsync();
+        this.workers = new ThreadPoolExecutor(settings.getWorkers(), settings.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+                new CustomizableThreadFactory("cover-resolver-"));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("cover-retry-"));
+    }
+
+    /**
+     * @return true when covers are resolved in the background, false when they should be fetched synchronously.
+     */
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Queues the cover lookup of the saved book. Returns immediately.
+     *
+     * @param bookId id of the book waiting for its cover
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return false when the queue is full; the book then stays pending until the next sweep
+     */
+    public boolean submit(Long bookId, String title, String author) {
+        if (!queuedBooks.add(bookId)) {
+            return true;
+        }
+        return enqueue(new CoverTask(bookId, title, author, 1));
+    }
+
+    /**
+     * Periodically queues books which are still pending, e.g. after a restart or when the queue was full.
+     */
+    @Scheduled(initialDelayString = "${booklist.cover.async.sweep-initial-delay:PT30S}",
+            fixedDelayString = "${booklist.cover.async.sweep-interval:PT5M}")
+    public void resubmitPending() {
+        if (!isEnabled()) {
+            return;
+        }
+        int capacity = workers.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        for (Book book : bookRepository.findByCoverPendingTrueOrderByIdAsc(Limit.of(capacity))) {
+            submit(book.getId(), book.getTitle(), book.getAuthor());
+        }
+    }
+
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public long getResolvedCount() {
+        return resolvedCount.get();
+    }
+
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("booklist.cover.queue.depth", this, CoverResolver::getQueueDepth)
+                .description("Books waiting for their cover to be resolved")
+                .register(registry);
+        resolutionCounter(registry, "resolved", resolvedCount);
+        resolutionCounter(registry, "retried", retriedCount);
+        resolutionCounter(registry, "failed", failedCount);
+        resolutionCounter(registry, "rejected", rejectedCount);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private boolean enqueue(CoverTask task) {
+        try {
+            workers.execute(() -> resolve(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queuedBooks.remove(task.bookId());
+            rejectedCount.incrementAndGet();
+            logger.warn("Kolejka okładek jest pełna, okładka książki o ID {} zostanie pobrana później.", task.bookId());
+            return false;
+        }
+    }
+
+    private void resolve(CoverTask task) {
+        String coverUrl;
+        try {
+            coverUrl = coverService.findCoverUrl(task.title(), task.author()).orElse(CoverService.DEFAULT_COVER_URL);
+            resolvedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (task.attempt() < settings.getMaxAttempts()) {
+                retriedCount.incrementAndGet();
+                long delay = backoffMillis(task.attempt());
+                logger.debug("Ponowna próba pobrania okładki książki o ID {} za {} ms.", task.bookId(), delay, e);
+                retryScheduler.schedule(() -> enqueue(task.nextAttempt()), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (e instanceof CoverLookupUnavailableException) {
+                // Google Books was not even asked; keep the book pending for the next sweep
+                queuedBooks.remove(task.bookId());
+                return;
+            }
+            failedCount.incrementAndGet();
+            logger.warn("Nie udało się pobrać okładki dla książki: {} - {}. Użyto domyślnej okładki.",
+                    task.title(), task.author(), e);
+            coverUrl = CoverService.DEFAULT_COVER_URL;
+        }
+        complete(task, coverUrl);
+    }
+
+    private void complete(CoverTask task, String coverUrl) {
+        try {
+            if (bookRepository.updateCover(task.bookId(), coverUrl) > 0) {
+                eventPublisher.publishEvent(BookChangedEvent.coverResolved(task.bookId(), coverUrl));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Nie udało się zapisać okładki książki o ID {}.", task.bookId(), e);
+        } finally {
+            queuedBooks.remove(task.bookId());
+        }
+    }
+
+    private static void resolutionCounter(MeterRegistry registry, String outcome, AtomicLong count) {
+        FunctionCounter.builder("booklist.cover.resolutions", count, AtomicLong::get)
+                .description("Background cover resolutions by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private long backoffMillis(int attempt) {
+        long initial = settings.getInitialBackoff().toMillis();
+        long delay = initial << Math.min(attempt - 1, 20);
+        return Math.min(delay, settings.getMaxBackoff().toMillis());
+    }
+
+    private record CoverTask(Long bookId, String title, String author, int attempt) {
+
+        CoverTask nextAttempt() {
+            return new CoverTask(bookId, title, author, attempt + 1);
+        }
+    }
+}
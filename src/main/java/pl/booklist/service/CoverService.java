@@ -1,55 +1,239 @@
 package pl.booklist.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
+import pl.booklist.config.BookListProperties;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Finds book covers in Google Books.
+ * Concurrent lookups of the same book (same {@link CoverCache#keyOf key}) share a single call.
+ * Lookups are counted in the {@code booklist.cover.lookups} metric by outcome, and books left with
+ * the default cover in {@code booklist.cover.fallbacks} by reason; the HTTP calls themselves are timed
+ * as {@code http.client.requests}.
+ * <p>
+ * Responses are read token by token and only up to the thumbnail of the first volume, without building
+ * a tree of the whole body.
+ */
 @Service
 public class CoverService {
 
     private static final Logger logger = LoggerFactory.getLogger(CoverService.class);
 
-    private static final String DEFAULT_COVER_URL = "/images/default-cover.jpg";
+    public static final String DEFAULT_COVER_URL = "/images/default-cover.jpg";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final RequestCallback ACCEPT_JSON =
+            request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
 
     private final RestTemplate restTemplate;
+    private final String apiUrl;
+    private final CoverCache coverCache;
+    private final CoverCircuitBreaker circuitBreaker;
+    private final ConcurrentMap<String, CompletableFuture<Optional<String>>> inFlightLookups = new ConcurrentHashMap<>();
+
+    private final Counter cachedLookups;
+    private final Counter coalescedLookups;
+    private final Counter foundLookups;
+    private final Counter notFoundLookups;
+    private final Counter failedLookups;
+    private final Counter rejectedLookups;
+    private final Counter notFoundFallbacks;
+    private final Counter failedFallbacks;
+    private final Counter unavailableFallbacks;
 
-    public CoverService(RestTemplate restTemplate) {
+    public CoverService(RestTemplate restTemplate, CoverCache coverCache, CoverCircuitBreaker circuitBreaker,
+                        MeterRegistry meterRegistry, BookListProperties properties) {
         this.restTemplate = restTemplate;
+        this.apiUrl = properties.getCover().getApiUrl();
+        this.coverCache = coverCache;
+        this.circuitBreaker = circuitBreaker;
+        this.cachedLookups = lookupCounter(meterRegistry, "cached");
+        this.coalescedLookups = lookupCounter(meterRegistry, "coalesced");
+        this.foundLookups = lookupCounter(meterRegistry, "found");
+        this.notFoundLookups = lookupCounter(meterRegistry, "not_found");
+        this.failedLookups = lookupCounter(meterRegistry, "failed");
+        this.rejectedLookups = lookupCounter(meterRegistry, "rejected");
+        this.notFoundFallbacks = fallbackCounter(meterRegistry, "not_found");
+        this.failedFallbacks = fallbackCounter(meterRegistry, "failed");
+        this.unavailableFallbacks = fallbackCounter(meterRegistry, "unavailable");
     }
 
+    /**
+     * Fetches the cover of the book from Google Books, falling back to the default cover
+     * when the book has no cover, the API call fails or is skipped by the circuit breaker.
+     *
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return URL of the cover image, never null
+     */
     public String fetchCoverUrl(String title, String author) {
-
-        String query = URLEncoder.encode(title + " " + author, StandardCharsets.UTF_8);
-        String apiUrl = "https://www.googleapis.com/books/v1/volumes?q=" + query + "&maxResults=1";
-
         try {
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(apiUrl, JsonNode.class);
-            JsonNode root = response.getBody();
-            JsonNode items = root.get("items");
-
-            if (items != null && items.size() > 0) {
-                JsonNode volumeInfo = items.get(0).get("volumeInfo");
-
-                if (volumeInfo != null) {
-                    JsonNode imageLinks = volumeInfo.get("imageLinks");
-
-                    if (imageLinks != null && imageLinks.has("thumbnail")) {
-                        String thumbnailUrl = imageLinks.get("thumbnail").asText();
-                        logger.info("Pobrano okładkę dla książki: {} - {}", title, author);
-                        return thumbnailUrl;
-                    }
-                }
+            Optional<String> coverUrl = findCoverUrl(title, author);
+            if (coverUrl.isPresent()) {
+                return coverUrl.get();
             }
+            notFoundFallbacks.increment();
+        } catch (CoverLookupUnavailableException e) {
+            unavailableFallbacks.increment();
+            logger.debug("Pominięto pobieranie okładki dla książki: {} - {}. Użyto domyślnej okładki.", title, author);
         } catch (Exception e) {
+            failedFallbacks.increment();
             logger.warn("Nie udało się pobrać okładki dla książki: {} - {}. Użyto domyślnej okładki.", title, author, e);
         }
 
         return DEFAULT_COVER_URL;
     }
-}
\ No newline at end of file
+
+    /**
+     * Looks up the cover of the book, first in {@link CoverCache} and then in Google Books.
+     * Unlike {@link #fetchCoverUrl(String, String)} errors are not hidden, so the caller can retry the lookup.
+     * Failed calls are not cached. While {@link CoverCircuitBreaker} is open Google Books is not called at all.
+     * When the same book is already being looked up, waits for that call and shares its result or error.
+     *
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return URL of the cover image, or empty when Google Books has no cover for the book
+     * @throws org.springframework.web.client.RestClientException when the API call fails
+     * @throws CoverLookupUnavailableException when the call was skipped by the circuit breaker
+     */
+    public Optional<String> findCoverUrl(String title, String author) {
+        String key = CoverCache.keyOf(title, author);
+        CoverCache.Entry cached = coverCache.get(key);
+        if (cached != null) {
+            cachedLookups.increment();
+            return cached.cover();
+        }
+
+        CompletableFuture<Optional<String>> lookup = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> running = inFlightLookups.putIfAbsent(key, lookup);
+        if (running != null) {
+            coalescedLookups.increment();
+            return await(running);
+        }
+
+        try {
+            Optional<String> coverUrl = callGoogleBooks(key, title, author);
+            lookup.complete(coverUrl);
+            return coverUrl;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLookups.remove(key, lookup);
+        }
+    }
+
+    private Optional<String> callGoogleBooks(String key, String title, String author) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedLookups.increment();
+            throw new CoverLookupUnavailableException("Google Books jest chwilowo niedostępne.");
+        }
+
+        Optional<String> coverUrl;
+        try {
+            coverUrl = lookupCoverUrl(title, author);
+            circuitBreaker.onSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            failedLookups.increment();
+            throw e;
+        }
+        (coverUrl.isPresent() ? foundLookups : notFoundLookups).increment();
+        coverCache.put(key, coverUrl.orElse(null));
+        return coverUrl;
+    }
+
+    private static Optional<String> await(CompletableFuture<Optional<String>> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Optional<String> lookupCoverUrl(String title, String author) {
+        Optional<String> thumbnailUrl = restTemplate.execute(apiUrl, HttpMethod.GET, ACCEPT_JSON,
+                response -> thumbnailOf(response.getBody()), title + " " + author);
+        if (thumbnailUrl != null && thumbnailUrl.isPresent()) {
+            logger.info("Pobrano okładkę dla książki: {} - {}", title, author);
+            return thumbnailUrl;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reads the thumbnail of the first volume from a Google Books search response.
+     * Fields before it are skipped without being parsed into values, and the rest of the body is not read.
+     *
+     * @param body response body, may be empty
+     * @return URL of the thumbnail, or empty when the response has no volume with a thumbnail
+     * @throws IOException when the body cannot be read or is not valid JSON
+     */
+    public static Optional<String> thumbnailOf(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT
+                    || !nextField(parser, "items") || parser.nextToken() != JsonToken.START_ARRAY
+                    || parser.nextToken() != JsonToken.START_OBJECT
+                    || !nextField(parser, "volumeInfo") || parser.nextToken() != JsonToken.START_OBJECT
+                    || !nextField(parser, "imageLinks") || parser.nextToken() != JsonToken.START_OBJECT
+                    || !nextField(parser, "thumbnail")) {
+                return Optional.empty();
+            }
+            parser.nextToken();
+            return Optional.ofNullable(parser.getValueAsString());
+        }
+    }
+
+    /**
+     * Moves the parser to the given field of the current object, skipping the values of the other fields.
+     *
+     * @return false when the object ends without the field
+     */
+    private static boolean nextField(JsonParser parser, String name) throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            if (field.equals(name)) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("booklist.cover.lookups")
+                .description("Cover lookups by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Counter fallbackCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("booklist.cover.fallbacks")
+                .description("Books given the default cover by fetchCoverUrl")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,170 @@
+package pl.booklist.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.event.BookChangedEvent;
+import pl.booklist.repository.ReactiveBookRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Non-blocking counterpart of {@link BookService} for the reactive variant of the book API.
+ * Reads and writes books with {@link ReactiveBookRepository} and fetches covers with {@link ReactiveCoverService}.
+ * <p>
+ * Every change still publishes a {@link BookChangedEvent}, so {@link BookListCache}, {@link BookSearchIndex}
+ * and the other listeners stay up to date. Some listeners use JDBC, so events are published on the bounded
+ * elastic scheduler, off the event loop.
+ *
+ * @author Paweł Opala
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookService {
+
+    private final ReactiveBookRepository bookRepository;
+    private final ReactiveCoverService coverService;
+    private final CoverResolver coverResolver;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookListProperties.Delete deleteSettings;
+
+    public ReactiveBookService(ReactiveBookRepository bookRepository, ReactiveCoverService coverService,
+                               CoverResolver coverResolver, BookSearchIndex bookSearchIndex,
+                               ApplicationEventPublisher eventPublisher, BookListProperties properties) {
+        this.bookRepository = bookRepository;
+        this.coverService = coverService;
+        this.coverResolver = coverResolver;
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.deleteSettings = properties.getDelete();
+    }
+
+    /**
+     * Same as {@link BookService#findBooksPage(Boolean, long, int)}, read without the list cache.
+     */
+    public Mono<BookPageDTO> findBooksPage(Boolean owned, long afterId, int size) {
+        Flux<BookDTO> books = owned == null
+                ? bookRepository.findDtoPage(afterId, size + 1)
+                : bookRepository.findDtoPageByOwned(owned, afterId, size + 1);
+        return books.collectList().map(page -> toPage(page, size));
+    }
+
+    /**
+     * Same as {@link BookService#searchBooks(String, Boolean, int)}.
+     */
+    public Flux<BookDTO> searchBooks(String query, Boolean owned, int limit) {
+        List<Long> ids = bookSearchIndex.search(query, owned, limit);
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return bookRepository.findDtosByIdIn(ids)
+                .collectMap(BookDTO::getId)
+                .flatMapIterable(books -> ids.stream()
+                        .map(books::get)
+                        .filter(Objects::nonNull)
+                        .toList());
+    }
+
+    /**
+     * @param owned ownership status of the books, or null for all books
+     * @return all books, emitted as they are read from the database
+     */
+    public Flux<BookDTO> streamBooks(Boolean owned) {
+        return bookRepository.streamDtos(owned);
+    }
+
+    /**
+     * Same as {@link BookService#addBook(BookDTO)}. When the cover is fetched right away,
+     * the request waits for Google Books without holding a thread.
+     */
+    public Mono<BookDTO> addBook(BookDTO bookDTO) {
+        String coverUrl = bookDTO.getCoverUrl();
+        Mono<String> cover;
+        boolean coverPending = false;
+
+        if (coverUrl != null && !coverUrl.isBlank()) {
+            cover = Mono.just(coverUrl);
+        } else if (coverResolver.isEnabled()) {
+            cover = Mono.just(CoverService.DEFAULT_COVER_URL);
+            coverPending = true;
+        } else {
+            cover = coverService.fetchCoverUrl(bookDTO.getTitle(), bookDTO.getAuthor());
+        }
+
+        boolean resolveLater = coverPending;
+        return cover
+                .flatMap(url -> {
+                    bookDTO.setCoverUrl(url);
+                    return bookRepository.insert(bookDTO, resolveLater);
+                })
+                .doOnNext(saved -> {
+                    if (resolveLater) {
+                        coverResolver.submit(saved.getId(), saved.getTitle(), saved.getAuthor());
+                    }
+                })
+                .flatMap(saved -> publish(BookChangedEvent.added(List.of(saved))).thenReturn(saved));
+    }
+
+    /**
+     * Same as {@link BookService#markAllAsOwned(Collection)}.
+     */
+    public Mono<Integer> markAllAsOwned(Collection<Long> ids) {
+        List<Long> distinctIds = distinct(ids);
+        if (distinctIds.isEmpty()) {
+            return Mono.just(0);
+        }
+        return bookRepository.markOwned(distinctIds)
+                .flatMap(updated -> updated > 0
+                        ? publish(BookChangedEvent.owned(distinctIds)).thenReturn(updated.intValue())
+                        : Mono.just(0));
+    }
+
+    /**
+     * Same as {@link BookService#deleteAll(Collection)}.
+     */
+    public Mono<Integer> deleteAll(Collection<Long> ids) {
+        List<Long> distinctIds = distinct(ids);
+        if (distinctIds.isEmpty()) {
+            return Mono.just(0);
+        }
+        Mono<Long> deleted = deleteSettings.isSoft()
+                ? bookRepository.softDeleteByIds(distinctIds, Instant.now())
+                : bookRepository.deleteByIds(distinctIds);
+        return deleted.flatMap(count -> count > 0
+                ? publish(BookChangedEvent.deleted(distinctIds)).thenReturn(count.intValue())
+                : Mono.just(0));
+    }
+
+    private Mono<Void> publish(BookChangedEvent event) {
+        return Mono.<Void>fromRunnable(() -> eventPublisher.publishEvent(event))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static List<Long> distinct(Collection<Long> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Cuts the books fetched with one extra row to a page; the extra row only tells that there is a next page.
+     */
+    private static BookPageDTO toPage(List<BookDTO> books, int size) {
+        if (books.size() <= size) {
+            return new BookPageDTO(books, null);
+        }
+        List<BookDTO> items = books.subList(0, size);
+        return new BookPageDTO(items, items.get(items.size() - 1).getId());
+    }
+}
@@ -0,0 +1,130 @@
+package pl.booklist.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import pl.booklist.config.BookListProperties;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Non-blocking counterpart of {@link CoverService}, used by the reactive variant of the book API.
+ * Looks the cover up with {@link WebClient} and shares {@link CoverCache} and {@link CoverCircuitBreaker}
+ * with the blocking service; concurrent lookups of the same book share a single call.
+ * The persistent tier of the cache is read and written on the bounded elastic scheduler, off the event loop.
+ *
+ * @author Paweł Opala
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCoverService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCoverService.class);
+
+    private final WebClient webClient;
+    private final String apiUrl;
+    private final CoverCache coverCache;
+    private final CoverCircuitBreaker circuitBreaker;
+    private final ConcurrentMap<String, Mono<Optional<String>>> inFlightLookups = new ConcurrentHashMap<>();
+
+    public ReactiveCoverService(WebClient coverWebClient, CoverCache coverCache, CoverCircuitBreaker circuitBreaker,
+                                BookListProperties properties) {
+        this.webClient = coverWebClient;
+        this.apiUrl = properties.getCover().getApiUrl();
+        this.coverCache = coverCache;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Same as {@link CoverService#fetchCoverUrl(String, String)}: falls back to the default cover when
+     * the book has no cover, the call fails or is skipped by the circuit breaker.
+     *
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return URL of the cover image
+     */
+    public Mono<String> fetchCoverUrl(String title, String author) {
+        return findCoverUrl(title, author)
+                .map(coverUrl -> coverUrl.orElse(CoverService.DEFAULT_COVER_URL))
+                .onErrorResume(e -> {
+                    if (e instanceof CoverLookupUnavailableException) {
+                        logger.debug("Pominięto pobieranie okładki dla książki: {} - {}. Użyto domyślnej okładki.", title, author);
+                    } else {
+                        logger.warn("Nie udało się pobrać okładki dla książki: {} - {}. Użyto domyślnej okładki.", title, author, e);
+                    }
+                    return Mono.just(CoverService.DEFAULT_COVER_URL);
+                });
+    }
+
+    /**
+     * Same as {@link CoverService#findCoverUrl(String, String)}, without blocking.
+     *
+     * @param title  the title of the book
+     * @param author the author of the book
+     * @return URL of the cover image, or empty when Google Books has no cover for the book
+     */
+    public Mono<Optional<String>> findCoverUrl(String title, String author) {
+        String key = CoverCache.keyOf(title, author);
+        return cached(key).map(CoverCache.Entry::cover)
+                .switchIfEmpty(Mono.defer(() -> inFlightLookups.computeIfAbsent(key, ignored ->
+                        callGoogleBooks(key, title, author)
+                                .doFinally(signal -> inFlightLookups.remove(key))
+                                .cache())));
+    }
+
+    private Mono<Optional<String>> callGoogleBooks(String key, String title, String author) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(new CoverLookupUnavailableException("Google Books jest chwilowo niedostępne."));
+            }
+            return lookupCoverUrl(title, author)
+                    .doOnSuccess(ignored -> circuitBreaker.onSuccess())
+                    .doOnError(RuntimeException.class, circuitBreaker::onFailure)
+                    .flatMap(coverUrl -> store(key, coverUrl.orElse(null)).thenReturn(coverUrl));
+        });
+    }
+
+    private Mono<Optional<String>> lookupCoverUrl(String title, String author) {
+        return webClient.get()
+                .uri(apiUrl, title + " " + author)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(DataBuffer.class)
+                .map(body -> {
+                    try (InputStream input = body.asInputStream(true)) {
+                        return CoverService.thumbnailOf(input);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(thumbnailUrl -> thumbnailUrl.ifPresent(ignored ->
+                        logger.info("Pobrano okładkę dla książki: {} - {}", title, author)));
+    }
+
+    private Mono<CoverCache.Entry> cached(String key) {
+        if (!coverCache.isPersistent()) {
+            return Mono.justOrEmpty(coverCache.get(key));
+        }
+        return Mono.fromCallable(() -> coverCache.get(key)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> store(String key, String coverUrl) {
+        if (!coverCache.isPersistent()) {
+            coverCache.put(key, coverUrl);
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(() -> coverCache.put(key, coverUrl)).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,11 @@
+-- Same schema as db/migration/mysql/V1__baseline.sql, for the embedded database of tests and benchmarks.
+-- Embedded databases always start empty, so the id is a plain column here; V4 adds book_seq like on MySQL.
+
+CREATE TABLE book (
+    id        BIGINT         NOT NULL,
+    title     VARCHAR(50)    NOT NULL,
+    author    VARCHAR(100)   NOT NULL,
+    owned     BOOLEAN        NOT NULL,
+    cover_url VARCHAR(10000),
+    PRIMARY KEY (id)
+);
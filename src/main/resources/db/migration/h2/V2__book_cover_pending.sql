@@ -0,0 +1 @@
+ALTER TABLE book ADD COLUMN cover_pending BOOLEAN NOT NULL DEFAULT FALSE;
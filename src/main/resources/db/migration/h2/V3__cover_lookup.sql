@@ -0,0 +1,6 @@
+CREATE TABLE cover_lookup (
+    lookup_key  VARCHAR(255)                NOT NULL,
+    cover_url   VARCHAR(1024),
+    resolved_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (lookup_key)
+);
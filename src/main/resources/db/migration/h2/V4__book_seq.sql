@@ -0,0 +1,2 @@
+-- A value of book_seq reserves the 50 ids ending with it; the table is empty here, so the first block is 1-50
+CREATE SEQUENCE book_seq START WITH 50 INCREMENT BY 50;
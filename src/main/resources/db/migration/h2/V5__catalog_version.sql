@@ -0,0 +1,5 @@
+CREATE TABLE catalog_version (
+    id      INTEGER NOT NULL,
+    version BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+);
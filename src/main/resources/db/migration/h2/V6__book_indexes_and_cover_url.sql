@@ -0,0 +1,7 @@
+CREATE INDEX idx_book_owned_id ON book (owned, id);
+
+CREATE INDEX idx_book_author_title ON book (author, title);
+
+UPDATE book SET cover_url = '/images/default-cover.jpg' WHERE CHAR_LENGTH(cover_url) > 2048;
+
+ALTER TABLE book ALTER COLUMN cover_url SET DATA TYPE VARCHAR(2048);
@@ -0,0 +1 @@
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+ALTER TABLE book ADD COLUMN deleted_at TIMESTAMP(6) WITH TIME ZONE;
+
+CREATE INDEX idx_book_deleted_at ON book (deleted_at);
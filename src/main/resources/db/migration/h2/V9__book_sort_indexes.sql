@@ -0,0 +1,3 @@
+CREATE INDEX idx_book_owned_title_id ON book (owned, title, id);
+
+CREATE INDEX idx_book_owned_author_id ON book (owned, author, id);
@@ -0,0 +1,7 @@
+-- Written on the primary by every health check of the replicas; its age on a replica is the replication lag
+CREATE TABLE replication_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
+
+INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, 0);
@@ -0,0 +1,12 @@
+-- Schema as it was created by hibernate.ddl-auto=update before migrations were introduced.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate), so it runs only on new ones;
+-- everything added since then comes in the later migrations, which run on existing databases too.
+
+CREATE TABLE book (
+    id        BIGINT         NOT NULL AUTO_INCREMENT,
+    title     VARCHAR(50)    NOT NULL,
+    author    VARCHAR(100)   NOT NULL,
+    owned     BIT            NOT NULL,
+    cover_url VARCHAR(10000),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
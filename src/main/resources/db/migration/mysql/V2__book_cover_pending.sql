@@ -0,0 +1,2 @@
+-- Books whose cover is still to be resolved in the background; existing books already have their covers
+ALTER TABLE book ADD COLUMN cover_pending BIT NOT NULL DEFAULT 0;
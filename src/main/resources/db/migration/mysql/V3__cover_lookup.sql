@@ -0,0 +1,7 @@
+-- Persistent tier of the cover lookup cache
+CREATE TABLE cover_lookup (
+    lookup_key  VARCHAR(255)  NOT NULL,
+    cover_url   VARCHAR(1024),
+    resolved_at DATETIME(6)   NOT NULL,
+    PRIMARY KEY (lookup_key)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Ids come from book_seq in blocks of 50 (pooled optimizer) instead of AUTO_INCREMENT, so inserts can be batched
+ALTER TABLE book MODIFY id BIGINT NOT NULL;
+
+-- MySQL has no sequences; Hibernate keeps the next value of book_seq in a table
+CREATE TABLE book_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+-- A value read from book_seq reserves the 50 ids ending with it, so start 50 above the highest existing id
+INSERT INTO book_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM book;
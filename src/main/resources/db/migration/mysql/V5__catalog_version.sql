@@ -0,0 +1,6 @@
+-- Shared counter of catalog changes, compared by every instance to invalidate its list cache
+CREATE TABLE catalog_version (
+    id      INTEGER NOT NULL,
+    version BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- Keyset pages and the home page shelf filter by owned and walk the ids in order
+CREATE INDEX idx_book_owned_id ON book (owned, id);
+
+-- Lookups of the books of an author, sorted by title
+CREATE INDEX idx_book_author_title ON book (author, title);
+
+-- Cover URLs from Google Books are around 150 characters; longer values are not valid covers
+UPDATE book SET cover_url = '/images/default-cover.jpg' WHERE CHAR_LENGTH(cover_url) > 2048;
+
+ALTER TABLE book MODIFY cover_url VARCHAR(2048);
@@ -0,0 +1,2 @@
+-- Version for optimistic locking of books, incremented by every update
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
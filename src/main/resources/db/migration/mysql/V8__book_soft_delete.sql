@@ -0,0 +1,4 @@
+-- Tombstone of soft-deleted books; the purge removes the oldest ones in chunks
+ALTER TABLE book ADD COLUMN deleted_at DATETIME(6) NULL;
+
+CREATE INDEX idx_book_deleted_at ON book (deleted_at);
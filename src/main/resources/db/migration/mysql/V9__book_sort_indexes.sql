@@ -0,0 +1,4 @@
+-- Sorted views of the home page walk the books of a section by title or author, with the id as a tie-breaker
+CREATE INDEX idx_book_owned_title_id ON book (owned, title, id);
+
+CREATE INDEX idx_book_owned_author_id ON book (owned, author, id);
@@ -0,0 +1,101 @@
+package pl.booklist.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    @Test
+    @DisplayName("should reject requests over the limit with 503 and release the slot after the request")
+    void shouldRejectRequestsOverTheLimit() throws Exception {
+        // GIVEN
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties(1), true);
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+
+        // WHEN
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/books"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    assertThat(filter.getActiveRequests()).isEqualTo(1);
+                    filter.doFilter(new MockHttpServletRequest("GET", "/"), nestedResponse, new MockFilterChain());
+                });
+
+        // THEN
+        assertThat(nestedResponse.getStatus()).isEqualTo(503);
+        assertThat(nestedResponse.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(filter.getRejectedCount()).isEqualTo(1);
+        assertThat(filter.getActiveRequests()).isZero();
+    }
+
+    @Test
+    @DisplayName("should keep the slot of an asynchronous request until the async processing completes")
+    void shouldReleaseAsyncRequestOnCompletion() throws Exception {
+        // GIVEN
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties(1), true);
+        MockHttpServletRequest asyncRequest = new MockHttpServletRequest("GET", "/api/books/export");
+        asyncRequest.setAsyncSupported(true);
+        MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+
+        // WHEN
+        filter.doFilter(asyncRequest, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+        filter.doFilter(new MockHttpServletRequest("GET", "/"), rejectedResponse, new MockFilterChain());
+        int activeBeforeCompletion = filter.getActiveRequests();
+        asyncRequest.getAsyncContext().complete();
+
+        // THEN
+        assertThat(activeBeforeCompletion).isEqualTo(1);
+        assertThat(rejectedResponse.getStatus()).isEqualTo(503);
+        assertThat(filter.getActiveRequests()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not limit the subscribers of the change feed")
+    void shouldSkipChangeFeed() throws Exception {
+        // GIVEN
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(properties(1), false);
+        MockHttpServletResponse feedResponse = new MockHttpServletResponse();
+
+        // WHEN
+        filter.doFilter(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(new MockHttpServletRequest("GET", "/api/books/changes"),
+                        feedResponse, new MockFilterChain()));
+
+        // THEN
+        assertThat(feedResponse.getStatus()).isEqualTo(200);
+        assertThat(filter.getRejectedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not limit static resources nor requests when the limit is not set")
+    void shouldSkipStaticResourcesAndDisabledLimit() throws Exception {
+        // GIVEN
+        ConcurrencyLimitFilter limited = new ConcurrencyLimitFilter(properties(1), false);
+        ConcurrencyLimitFilter unlimited = new ConcurrencyLimitFilter(properties(0), false);
+        MockHttpServletResponse staticResponse = new MockHttpServletResponse();
+        MockHttpServletResponse unlimitedResponse = new MockHttpServletResponse();
+
+        // WHEN
+        limited.doFilter(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse(),
+                (request, response) -> limited.doFilter(new MockHttpServletRequest("GET", "/css/styles.css"),
+                        staticResponse, new MockFilterChain()));
+        unlimited.doFilter(new MockHttpServletRequest("GET", "/"), unlimitedResponse, new MockFilterChain());
+
+        // THEN
+        assertThat(staticResponse.getStatus()).isEqualTo(200);
+        assertThat(unlimitedResponse.getStatus()).isEqualTo(200);
+        assertThat(unlimited.isEnabled()).isFalse();
+    }
+
+    private static BookListProperties properties(int maxConcurrentRequests) {
+        BookListProperties properties = new BookListProperties();
+        properties.getWeb().setMaxConcurrentRequests(maxConcurrentRequests);
+        properties.getWeb().setQueueTimeout(Duration.ZERO);
+        return properties;
+    }
+}
@@ -0,0 +1,134 @@
+package pl.booklist.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes between two embedded databases standing for the primary and a replica; replication is simulated
+ * by copying the heartbeat of the primary to the replica.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("routing-primary");
+    private final DataSource replica = database("routing-replica");
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        createSchema(primary, "primary");
+        createSchema(replica, "replica");
+
+        BookListProperties.Replicas settings = new BookListProperties.Replicas();
+        settings.setMaxLag(Duration.ofSeconds(5));
+        routingDataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica), settings);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    @DisplayName("GIVEN a replica in sync with the primary, WHEN transactions run, THEN only read-only ones use the replica")
+    void shouldSendReadOnlyTransactionsToReplica() {
+        // GIVEN
+        routingDataSource.checkReplicas();
+        replicateHeartbeat();
+        routingDataSource.checkReplicas();
+
+        // WHEN
+        String readOnlyServer = readOnlyTransaction.execute(status -> serverName());
+        String readWriteServer = transaction.execute(status -> serverName());
+
+        // THEN
+        assertThat(routingDataSource.getHealthyReplicaCount()).isEqualTo(1);
+        assertThat(readOnlyServer).isEqualTo("replica");
+        assertThat(readWriteServer).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("GIVEN a replica lagging behind the primary, WHEN a read-only transaction runs, THEN it uses the primary")
+    void shouldFallBackToPrimaryWhenReplicaLags() {
+        // GIVEN
+        routingDataSource.checkReplicas();
+
+        // WHEN
+        String readOnlyServer = readOnlyTransaction.execute(status -> serverName());
+
+        // THEN
+        assertThat(routingDataSource.getHealthyReplicaCount()).isZero();
+        assertThat(readOnlyServer).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("GIVEN a healthy replica, WHEN it goes down, THEN read-only transactions use the primary after the next check")
+    void shouldFallBackToPrimaryWhenReplicaIsDown() {
+        // GIVEN
+        routingDataSource.checkReplicas();
+        replicateHeartbeat();
+        routingDataSource.checkReplicas();
+        String serverBefore = readOnlyTransaction.execute(status -> serverName());
+        assertThat(serverBefore).isEqualTo("replica");
+
+        // WHEN
+        new JdbcTemplate(replica).execute("DROP TABLE replication_heartbeat");
+        routingDataSource.checkReplicas();
+
+        // THEN
+        String serverAfter = readOnlyTransaction.execute(status -> serverName());
+        assertThat(routingDataSource.getHealthyReplicaCount()).isZero();
+        assertThat(serverAfter).isEqualTo("primary");
+    }
+
+    private String serverName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    private void replicateHeartbeat() {
+        Long beatMillis = new JdbcTemplate(primary)
+                .queryForObject("SELECT beat_millis FROM replication_heartbeat WHERE id = 1", Long.class);
+        new JdbcTemplate(replica).update("UPDATE replication_heartbeat SET beat_millis = ? WHERE id = 1", beatMillis);
+    }
+
+    private static void createSchema(DataSource dataSource, String name) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE replication_heartbeat (id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, 0)");
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(20) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+}
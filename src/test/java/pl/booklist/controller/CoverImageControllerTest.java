@@ -0,0 +1,74 @@
+package pl.booklist.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.service.BookService;
+import pl.booklist.service.CoverImageStore;
+import pl.booklist.service.CoverService;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+class CoverImageControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private BookService bookService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getCover().getImages().setDirectory(directory);
+        bookService = mock(BookService.class);
+        CoverImageStore store = new CoverImageStore(null, properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CoverImageController(bookService, store, properties)).build();
+    }
+
+    @Test
+    @DisplayName("should redirect to a cover served by the application")
+    void shouldRedirectToAppRelativeCover() throws Exception {
+        // GIVEN
+        when(bookService.findCoverUrl(1L)).thenReturn(Optional.of(CoverService.DEFAULT_COVER_URL));
+
+        // WHEN / THEN
+        mockMvc.perform(get("/covers/1"))
+                .andExpect(redirectedUrl(CoverService.DEFAULT_COVER_URL));
+    }
+
+    @Test
+    @DisplayName("should answer a cover from a host outside the allowed ones with the default cover")
+    void shouldNotRedirectToOtherHosts() throws Exception {
+        // GIVEN
+        when(bookService.findCoverUrl(1L)).thenReturn(Optional.of("https://evil.example/cover.jpg"));
+
+        // WHEN / THEN
+        mockMvc.perform(get("/covers/1"))
+                .andExpect(redirectedUrl(CoverService.DEFAULT_COVER_URL));
+    }
+
+    @Test
+    @DisplayName("should not take a protocol-relative URL for a path of the application")
+    void shouldNotRedirectToProtocolRelativeUrls() throws Exception {
+        // GIVEN
+        when(bookService.findCoverUrl(1L)).thenReturn(Optional.of("//evil.example/cover.jpg"));
+        when(bookService.findCoverUrl(2L)).thenReturn(Optional.of("/\\evil.example/cover.jpg"));
+
+        // WHEN / THEN
+        mockMvc.perform(get("/covers/1"))
+                .andExpect(redirectedUrl(CoverService.DEFAULT_COVER_URL));
+        mockMvc.perform(get("/covers/2"))
+                .andExpect(redirectedUrl(CoverService.DEFAULT_COVER_URL));
+    }
+}
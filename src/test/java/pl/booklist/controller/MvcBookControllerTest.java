@@ -0,0 +1,113 @@
+package pl.booklist.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.service.BookService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MvcBookControllerTest {
+
+    private BookService bookService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getPagination().setMaxSize(2);
+        bookService = mock(BookService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new MvcBookController(bookService, properties)).build();
+    }
+
+    @Test
+    @DisplayName("should reject moving more books than the maximum page size without touching them")
+    void moveSelectedToOwned_shouldBeCappedAtMaxSize() throws Exception {
+        // WHEN
+        mockMvc.perform(post("/books/moveToOwned").param("ids", "1", "2", "3"))
+                .andExpect(redirectedUrl("/"))
+                .andExpect(flash().attribute("error", "Można zmienić najwyżej 2 książek naraz."));
+
+        // THEN
+        verify(bookService, never()).markAllAsOwned(anyList());
+    }
+
+    @Test
+    @DisplayName("should move a selection within the maximum page size with a single call")
+    void moveSelectedToOwned_shouldMoveWithinMaxSize() throws Exception {
+        // GIVEN
+        when(bookService.markAllAsOwned(List.of(1L, 2L))).thenReturn(2);
+
+        // WHEN
+        mockMvc.perform(post("/books/moveToOwned").param("ids", "1", "2"))
+                .andExpect(redirectedUrl("/"))
+                .andExpect(flash().attribute("message", "Dodano do kolekcji książek: 2."));
+
+        // THEN
+        verify(bookService).markAllAsOwned(List.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("should reject deleting more books than the maximum page size without touching them")
+    void deleteSelected_shouldBeCappedAtMaxSize() throws Exception {
+        // WHEN
+        mockMvc.perform(post("/books/delete").param("ids", "1", "2", "3"))
+                .andExpect(redirectedUrl("/"))
+                .andExpect(flash().attribute("error", "Można zmienić najwyżej 2 książek naraz."));
+
+        // THEN
+        verify(bookService, never()).deleteAll(anyList());
+    }
+
+    @Test
+    @DisplayName("should delete a selection within the maximum page size with a single call")
+    void deleteSelected_shouldDeleteWithinMaxSize() throws Exception {
+        // GIVEN
+        when(bookService.deleteAll(List.of(1L, 2L))).thenReturn(2);
+
+        // WHEN
+        mockMvc.perform(post("/books/delete").param("ids", "1", "2"))
+                .andExpect(redirectedUrl("/"))
+                .andExpect(flash().attribute("message", "Usunięto książek: 2."));
+
+        // THEN
+        verify(bookService).deleteAll(List.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("should answer an unknown sort order of the home page with 400")
+    void home_shouldRejectUnknownSort() throws Exception {
+        // WHEN
+        mockMvc.perform(get("/").param("sort", "foo"))
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    @DisplayName("should answer an unknown home page section with 400")
+    void section_shouldRejectUnknownSection() throws Exception {
+        // WHEN
+        mockMvc.perform(get("/books/section/bogus").param("after", "0"))
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        verifyNoInteractions(bookService);
+    }
+}
@@ -0,0 +1,102 @@
+package pl.booklist.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application on the reactive web stack, with R2DBC connected to the in-memory database of the tests.
+ */
+@SpringBootTest(properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///booklist?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ReactiveBookControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final List<Long> createdBooks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteByIds(createdBooks);
+    }
+
+    @Test
+    @DisplayName("GIVEN books added over JPA and over R2DBC, WHEN the wishlist is read, THEN all books have distinct ids")
+    void shouldAddBooksWithIdsFromTheSharedSequence() {
+        // GIVEN
+        Book saved = bookRepository.save(new Book(null, "Clean Code", "Robert C. Martin", false, "http://cover.url"));
+        createdBooks.add(saved.getId());
+
+        // WHEN
+        BookDTO first = add("Lód", "Jacek Dukaj");
+        BookDTO second = add("Solaris", "Stanisław Lem");
+        Book savedAfter = bookRepository.save(new Book(null, "Refactoring", "Martin Fowler", false, "http://cover.url"));
+        createdBooks.add(savedAfter.getId());
+
+        // THEN
+        assertThat(List.of(saved.getId(), first.getId(), second.getId(), savedAfter.getId())).doesNotHaveDuplicates();
+        List<BookDTO> wishlist = webTestClient.get().uri("/api/books/wishlist?size=1000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(wishlist).extracting(BookDTO::getId).contains(saved.getId(), first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("GIVEN a book added over R2DBC, WHEN it is moved to the collection, THEN it is owned for JPA too")
+    void shouldMarkBooksOwned() {
+        // GIVEN
+        BookDTO book = add("Lód", "Jacek Dukaj");
+
+        // WHEN
+        webTestClient.post().uri("/api/books/owned")
+                .bodyValue(List.of(book.getId()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.updated").isEqualTo(1);
+
+        // THEN
+        assertThat(bookRepository.findById(book.getId())).hasValueSatisfying(found -> assertThat(found.isOwned()).isTrue());
+        webTestClient.get().uri("/api/books/my-books?size=1&after=" + (book.getId() - 1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].title").isEqualTo("Lód");
+    }
+
+    private BookDTO add(String title, String author) {
+        BookDTO book = webTestClient.post().uri("/api/books")
+                .bodyValue(new BookDTO(null, title, author, false, "http://cover.url"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(book).isNotNull();
+        createdBooks.add(book.getId());
+        return book;
+    }
+}
@@ -6,9 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import pl.booklist.dto.BookDTO;
 import pl.booklist.model.Book;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -56,4 +62,88 @@ class BookRepositoryTest {
         assertThat(notOwnedBooks.get(0).getTitle()).isEqualTo("Effective Java");
         assertThat(notOwnedBooks.get(0).isOwned()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GIVEN owned and unowned books, WHEN DTO queries are called, THEN books are read as unmanaged DTOs")
+    void shouldReadBooksAsDtoProjections() {
+        // GIVEN
+        Book first = bookRepository.save(new Book(null, "Clean Code", "Robert C. Martin", true, "http://cover.url"));
+        Book second = bookRepository.save(new Book(null, "Refactoring", "Martin Fowler", true, "http://cover.url"));
+        Book wish = bookRepository.save(new Book(null, "Effective Java", "Joshua Bloch", false, "http://cover.url"));
+        bookRepository.flush();
+
+        // WHEN
+        List<BookDTO> page = bookRepository.findDtoPageByOwned(true, first.getId(), Limit.of(10));
+        List<BookDTO> shelf = bookRepository.findShelf(1);
+
+        // THEN
+        assertThat(page).extracting(BookDTO::getTitle).containsExactly("Refactoring");
+        assertThat(page.get(0).getId()).isEqualTo(second.getId());
+        assertThat(shelf).extracting(BookDTO::getId).containsExactly(first.getId(), wish.getId());
+        assertThat(shelf).extracting(BookDTO::isOwned).containsExactly(true, false);
+    }
+
+    @Test
+    @DisplayName("GIVEN unowned books, WHEN markOwned is called, THEN they are updated in one statement and stale entities cannot overwrite them")
+    void shouldMarkBooksOwnedAndIncrementVersion() {
+        // GIVEN
+        Book first = bookRepository.save(new Book(null, "Clean Code", "Robert C. Martin", false, "http://cover.url"));
+        Book second = bookRepository.save(new Book(null, "Refactoring", "Martin Fowler", false, "http://cover.url"));
+        Book owned = bookRepository.save(new Book(null, "Effective Java", "Joshua Bloch", true, "http://cover.url"));
+        bookRepository.flush();
+
+        // WHEN
+        int updated = bookRepository.markOwned(List.of(first.getId(), second.getId(), owned.getId()));
+
+        // THEN
+        assertThat(updated).as("The book which was already owned is not updated.").isEqualTo(2);
+        assertThat(bookRepository.findDtosByOwned(true)).hasSize(3);
+
+        first.setTitle("Clean Code, 2nd edition");
+        assertThatThrownBy(() -> bookRepository.saveAndFlush(first))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
+    @Test
+    @DisplayName("GIVEN a soft-deleted book, WHEN books are queried, THEN it is hidden until the purge removes its row")
+    void shouldHideSoftDeletedBooksAndPurgeTombstones() {
+        // GIVEN
+        Book kept = bookRepository.save(new Book(null, "Clean Code", "Robert C. Martin", true, "http://cover.url"));
+        Book deleted = bookRepository.save(new Book(null, "Refactoring", "Martin Fowler", true, "http://cover.url"));
+        bookRepository.flush();
+        Instant deletedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        // WHEN
+        int softDeleted = bookRepository.softDeleteByIds(List.of(deleted.getId()), deletedAt);
+
+        // THEN
+        assertThat(softDeleted).isEqualTo(1);
+        assertThat(bookRepository.findDtosByOwned(true)).extracting(BookDTO::getId).containsExactly(kept.getId());
+        assertThat(bookRepository.findShelf(10)).extracting(BookDTO::getId).containsExactly(kept.getId());
+        assertThat(bookRepository.existsById(deleted.getId())).isFalse();
+
+        assertThat(bookRepository.findTombstoneIds(deletedAt, 10)).as("Tombstones within the retention are kept.").isEmpty();
+        List<Long> tombstones = bookRepository.findTombstoneIds(deletedAt.plusSeconds(1), 10);
+        assertThat(tombstones).containsExactly(deleted.getId());
+        assertThat(bookRepository.purgeTombstones(tombstones)).isEqualTo(1);
+        assertThat(bookRepository.findTombstoneIds(deletedAt.plusSeconds(1), 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("GIVEN books with the same title, WHEN pages sorted by title are read, THEN the id breaks the ties")
+    void shouldPageBooksSortedByTitle() {
+        // GIVEN
+        Book solaris = bookRepository.save(new Book(null, "Solaris", "Stanisław Lem", true, "http://cover.url"));
+        Book dune = bookRepository.save(new Book(null, "Dune", "Frank Herbert", true, "http://cover.url"));
+        Book secondDune = bookRepository.save(new Book(null, "Dune", "Frank Herbert", true, "http://cover.url"));
+        bookRepository.flush();
+
+        // WHEN
+        List<BookDTO> first = bookRepository.findDtoPageByOwnedOrderByTitle(true, "", 0L, Limit.of(2));
+        List<BookDTO> second = bookRepository.findDtoPageByOwnedOrderByTitle(true, "Dune", secondDune.getId(), Limit.of(2));
+
+        // THEN
+        assertThat(first).extracting(BookDTO::getId).containsExactly(dune.getId(), secondDune.getId());
+        assertThat(second).extracting(BookDTO::getId).containsExactly(solaris.getId());
+    }
+}
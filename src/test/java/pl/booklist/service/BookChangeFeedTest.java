@@ -0,0 +1,99 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.controller.BookController;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.event.BookChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class BookChangeFeedTest {
+
+    private BookChangeFeed feed;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getFeed().setHistory(2);
+        ObjectMapper objectMapper = new ObjectMapper();
+        feed = new BookChangeFeed(objectMapper, properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(new BookController(mock(BookService.class),
+                mock(BookImportService.class), mock(BookExportService.class), feed, properties, objectMapper)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    @DisplayName("should send the missed changes to a subscriber resuming with Last-Event-ID, then the new ones")
+    void changes_shouldResumeAfterLastEventId() throws Exception {
+        // GIVEN
+        feed.onBookChanged(BookChangedEvent.owned(List.of(1L)));
+        String received = feed.currentEventId();
+        feed.onBookChanged(BookChangedEvent.deleted(List.of(2L)));
+
+        // WHEN
+        MvcResult result = mockMvc.perform(get("/api/books/changes").header("Last-Event-ID", received))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        feed.onBookChanged(BookChangedEvent.added(List.of(new BookDTO(3L, "Lód", "Jacek Dukaj", false, "url3"))));
+
+        // THEN
+        String events = awaitContent(result.getResponse(), "event:added");
+        assertThat(events).doesNotContain("event:owned").doesNotContain("event:" + BookChangeFeed.RESET_EVENT);
+        assertThat(events.indexOf("event:deleted")).isLessThan(events.indexOf("event:added"));
+        assertThat(events).contains("\"bookIds\":[2]").contains("\"title\":\"Lód\"");
+        assertThat(events).contains("id:" + feed.currentEventId());
+    }
+
+    @Test
+    @DisplayName("should tell a subscriber to reload the lists when its missed changes are no longer kept")
+    void changes_shouldResetWhenLastEventIdIsTooOld() throws Exception {
+        // GIVEN
+        String received = feed.currentEventId();
+        feed.onBookChanged(BookChangedEvent.owned(List.of(1L)));
+        feed.onBookChanged(BookChangedEvent.owned(List.of(2L)));
+        feed.onBookChanged(BookChangedEvent.owned(List.of(3L)));
+
+        // WHEN
+        MvcResult result = mockMvc.perform(get("/api/books/changes").header("Last-Event-ID", received))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        String events = awaitContent(result.getResponse(), "event:" + BookChangeFeed.RESET_EVENT);
+        assertThat(events).contains("id:" + feed.currentEventId()).doesNotContain("event:owned");
+        assertThat(feed.getSubscriberCount()).isEqualTo(1);
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        // the events are written by the sender threads of the feed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = response.getContentAsString(StandardCharsets.UTF_8);
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            content = response.getContentAsString(StandardCharsets.UTF_8);
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+}
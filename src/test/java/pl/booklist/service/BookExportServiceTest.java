@@ -0,0 +1,118 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookExportFormat;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports from the in-memory database of the tests, with a fetch size smaller than the number of books.
+ */
+@SpringBootTest(properties = {
+        "booklist.export.fetch-size=2",
+        "booklist.cover.async.enabled=false"
+})
+@ActiveProfiles("test")
+class BookExportServiceTest {
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> createdBooks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteByIds(createdBooks);
+    }
+
+    @Test
+    @DisplayName("GIVEN books with commas and quotes, WHEN exported as CSV, THEN the file has the import header and every book")
+    void shouldExportCsv() throws Exception {
+        // GIVEN
+        Long solaris = create("Solaris, wydanie \"drugie\"", "Stanisław Lem", true);
+        Long ice = create("Lód", "Jacek Dukaj", false);
+        Long dune = create("Diuna", "Frank Herbert", false);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // WHEN
+        long exported = bookExportService.export(BookExportFormat.CSV, null, false, output);
+
+        // THEN
+        try (CSVParser parser = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build()
+                .parse(new StringReader(output.toString(StandardCharsets.UTF_8)))) {
+            assertThat(parser.getHeaderNames()).containsExactly("id", "title", "author", "owned", "coverUrl");
+            List<CSVRecord> records = parser.getRecords();
+            assertThat(records).hasSize((int) exported);
+            assertThat(records).extracting(record -> Long.valueOf(record.get("id"))).isSorted().contains(solaris, ice, dune);
+            assertThat(records).filteredOn(record -> record.get("id").equals(solaris.toString()))
+                    .singleElement()
+                    .satisfies(record -> {
+                        assertThat(record.get("title")).isEqualTo("Solaris, wydanie \"drugie\"");
+                        assertThat(record.get("author")).isEqualTo("Stanisław Lem");
+                        assertThat(record.get("owned")).isEqualTo("true");
+                        assertThat(record.get("coverUrl")).isEqualTo("http://cover.url");
+                    });
+        }
+    }
+
+    @Test
+    @DisplayName("GIVEN owned and unowned books, WHEN owned books are exported as gzipped NDJSON, THEN only owned books are exported")
+    void shouldExportGzippedNdjson() throws Exception {
+        // GIVEN
+        Long solaris = create("Solaris", "Stanisław Lem", true);
+        Long ice = create("Lód", "Jacek Dukaj", false);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // WHEN
+        long exported = bookExportService.export(BookExportFormat.NDJSON, true, true, output);
+
+        // THEN
+        List<BookDTO> books = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                books.add(objectMapper.readValue(line, BookDTO.class));
+            }
+        }
+        assertThat(books).hasSize((int) exported).allMatch(BookDTO::isOwned);
+        assertThat(books).extracting(BookDTO::getId).contains(solaris).doesNotContain(ice);
+        assertThat(books).filteredOn(book -> book.getId().equals(solaris))
+                .singleElement()
+                .satisfies(book -> assertThat(book.getCoverUrl()).isEqualTo("http://cover.url"));
+    }
+
+    private Long create(String title, String author, boolean owned) {
+        Long id = bookRepository.save(new Book(null, title, author, owned, "http://cover.url")).getId();
+        createdBooks.add(id);
+        return id;
+    }
+}
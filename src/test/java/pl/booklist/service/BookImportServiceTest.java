@@ -0,0 +1,108 @@
+package pl.booklist.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.dto.BookImportResultDTO;
+import pl.booklist.mapper.BookMapperImpl;
+import pl.booklist.repository.BookRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookImportServiceTest {
+
+    private static final String BOOK_JSON = "{\"title\":\"Lód\",\"author\":\"Jacek Dukaj\",\"owned\":true,"
+            + "\"coverUrl\":\"http://cover.url/lod.jpg\"}";
+    private static final String BOOK_CSV = "Lód,Jacek Dukaj,true,http://cover.url/lod.jpg";
+
+    private BookRepository bookRepository;
+    private BookImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getImport().setBatchSize(2);
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        importService = new BookImportService(bookRepository, new BookMapperImpl(), mock(CoverService.class),
+                mock(CoverResolver.class), Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(EntityManager.class),
+                new ObjectMapper(), mock(ApplicationEventPublisher.class), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    @DisplayName("should keep the books read before a JSON syntax error and report the row where reading stopped")
+    void importJson_shouldReportPartialImportOnSyntaxError() {
+        // GIVEN
+        InputStream input = stream("[" + BOOK_JSON + "," + BOOK_JSON + "," + BOOK_JSON + ",{\"title\":");
+
+        // WHEN
+        BookImportResultDTO result = importService.importJson(input);
+
+        // THEN
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getRow()).isEqualTo(4);
+            assertThat(error.getMessage()).startsWith("Nieprawidłowy format pliku JSON");
+        });
+        verify(bookRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("should keep the books read before a malformed CSV record and report the row where reading stopped")
+    void importCsv_shouldReportPartialImportOnSyntaxError() {
+        // GIVEN
+        InputStream input = stream("title,author,owned,coverUrl\n"
+                + BOOK_CSV + "\n" + BOOK_CSV + "\n" + BOOK_CSV + "\n"
+                + "\"Lód\"x,Jacek Dukaj,true,\n"
+                + BOOK_CSV + "\n");
+
+        // WHEN
+        BookImportResultDTO result = importService.importCsv(input);
+
+        // THEN
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getRow()).isEqualTo(4);
+            assertThat(error.getMessage()).startsWith("Nieprawidłowy format pliku CSV");
+        });
+    }
+
+    @Test
+    @DisplayName("should reject an input which is not a JSON array without importing anything")
+    void importJson_shouldRejectInputWithoutArray() {
+        // WHEN / THEN
+        assertThatThrownBy(() -> importService.importJson(stream(BOOK_JSON)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Oczekiwano tablicy JSON z książkami.");
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
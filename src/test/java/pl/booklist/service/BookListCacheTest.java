@@ -0,0 +1,83 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.event.BookChangedEvent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookListCacheTest {
+
+    @Mock
+    private CatalogVersionTracker catalogVersionTracker;
+
+    private BookListCache bookListCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        bookListCache = new BookListCache(catalogVersionTracker, new BookListProperties());
+    }
+
+    @Test
+    @DisplayName("should load the list once while the catalog version does not change")
+    void get_shouldServeRepeatedReadsFromMemory() {
+        // GIVEN
+        when(catalogVersionTracker.current()).thenReturn(7L);
+
+        // WHEN
+        List<String> first = bookListCache.get("all", this::load);
+        List<String> second = bookListCache.get("all", this::load);
+
+        // THEN
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(bookListCache.getStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should reload the list when another instance changed the catalog")
+    void get_shouldReloadAfterCatalogVersionChanged() {
+        // GIVEN
+        when(catalogVersionTracker.current()).thenReturn(7L, 8L);
+
+        // WHEN
+        bookListCache.get("all", this::load);
+        bookListCache.get("all", this::load);
+
+        // THEN
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("should bump the catalog version and reload the list after a local change")
+    void onBookChanged_shouldInvalidateCachedLists() {
+        // GIVEN
+        when(catalogVersionTracker.current()).thenReturn(7L);
+        bookListCache.get("all", this::load);
+
+        // WHEN
+        bookListCache.onBookChanged(BookChangedEvent.deleted(List.of(1L)));
+        bookListCache.get("all", this::load);
+
+        // THEN
+        verify(catalogVersionTracker, times(1)).increment();
+        assertThat(loads).hasValue(2);
+    }
+
+    private List<String> load() {
+        loads.incrementAndGet();
+        return List.of("Wiedźmin", "Lód");
+    }
+}
@@ -0,0 +1,89 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import pl.booklist.config.BookListProperties;
+import pl.booklist.model.Book;
+import pl.booklist.repository.BookRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Purges tombstones of the in-memory database of the tests, one row per chunk.
+ */
+@SpringBootTest(properties = "booklist.cover.async.enabled=false")
+@ActiveProfiles("test")
+class BookPurgerTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdBooks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        // soft-deleted books are hidden from the repository, so remove the rows directly
+        createdBooks.forEach(id -> jdbcTemplate.update("DELETE FROM book WHERE id = ?", id));
+    }
+
+    @Test
+    @DisplayName("GIVEN tombstones older and newer than the retention, WHEN the purge runs, THEN only the older rows are removed")
+    void shouldPurgeTombstonesOlderThanRetention() {
+        // GIVEN
+        Long deletedTwoDaysAgo = createDeleted("Solaris", NOW.minus(Duration.ofDays(2)));
+        Long deletedThreeDaysAgo = createDeleted("Lód", NOW.minus(Duration.ofDays(3)));
+        Long deletedAnHourAgo = createDeleted("Diuna", NOW.minus(Duration.ofHours(1)));
+        Long kept = create("Perfekcyjna niedoskonałość");
+
+        BookListProperties properties = new BookListProperties();
+        properties.getDelete().setRetention(Duration.ofDays(1));
+        properties.getDelete().setPurgeChunkSize(1);
+        BookPurger purger = new BookPurger(bookRepository, properties, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // WHEN
+        int purged = purger.purge();
+
+        // THEN
+        assertThat(purged).isEqualTo(2);
+        assertThat(rowExists(deletedTwoDaysAgo)).isFalse();
+        assertThat(rowExists(deletedThreeDaysAgo)).isFalse();
+        assertThat(rowExists(deletedAnHourAgo)).isTrue();
+        assertThat(bookRepository.existsById(deletedAnHourAgo)).isFalse();
+        assertThat(bookRepository.existsById(kept)).isTrue();
+    }
+
+    private Long createDeleted(String title, Instant deletedAt) {
+        Long id = create(title);
+        bookRepository.softDeleteByIds(List.of(id), deletedAt);
+        return id;
+    }
+
+    private Long create(String title) {
+        Long id = bookRepository.save(new Book(null, title, "Autor", false, "http://cover.url")).getId();
+        createdBooks.add(id);
+        return id;
+    }
+
+    private boolean rowExists(Long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book WHERE id = ?", Integer.class, id);
+        return count != null && count > 0;
+    }
+}
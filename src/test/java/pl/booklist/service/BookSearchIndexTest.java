@@ -0,0 +1,88 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.event.BookChangedEvent;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(null, null);
+        index.add(1L, "Wiedźmin: Ostatnie życzenie", "Andrzej Sapkowski", true);
+        index.add(2L, "Lód", "Jacek Dukaj", false);
+        index.add(3L, "Łódź 1905", "Aleksandra Łódzka", false);
+        index.add(4L, "Krew elfów", "Andrzej Sapkowski", false);
+    }
+
+    @Test
+    @DisplayName("should fold Polish diacritics when tokenizing")
+    void tokenize_shouldFoldDiacritics() {
+        assertThat(BookSearchIndex.tokenize("Żółć, Łódź i ĆMA!")).containsExactly("zolc", "lodz", "i", "cma");
+    }
+
+    @Test
+    @DisplayName("should find books by word prefixes without diacritics")
+    void search_shouldMatchPrefixesWithoutDiacritics() {
+        assertThat(index.search("lod", null, 10)).containsExactly(2L, 3L);
+        assertThat(index.search("wiedz", null, 10)).containsExactly(1L);
+        assertThat(index.search("ŻYCZENIE", null, 10)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("should require every word of the query to match")
+    void search_shouldIntersectWords() {
+        assertThat(index.search("sapkowski krew", null, 10)).containsExactly(4L);
+        assertThat(index.search("sapkowski dukaj", null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should filter results by ownership and limit their number")
+    void search_shouldFilterByOwnedAndLimit() {
+        assertThat(index.search("andrzej", true, 10)).containsExactly(1L);
+        assertThat(index.search("andrzej", false, 10)).containsExactly(4L);
+        assertThat(index.search("andrzej", null, 1)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("should follow added, removed and owned books")
+    void onBookChanged_shouldUpdateIndex() {
+        // WHEN
+        index.onBookChanged(BookChangedEvent.added(List.of(new BookDTO(5L, "Perfekcyjna niedoskonałość", "Jacek Dukaj", false, null))));
+        index.onBookChanged(BookChangedEvent.deleted(List.of(2L)));
+        index.onBookChanged(BookChangedEvent.owned(List.of(5L)));
+
+        // THEN
+        assertThat(index.search("dukaj", null, 10)).containsExactly(5L);
+        assertThat(index.search("dukaj", true, 10)).containsExactly(5L);
+        assertThat(index.search("lod", null, 10)).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should drop only the words of removed books and replace the words of re-added ones")
+    void remove_shouldTouchOnlyWordsOfRemovedBooks() {
+        // GIVEN
+        int termsBefore = index.termCount();
+
+        // WHEN
+        index.remove(List.of(1L, 2L, 99L));
+        index.add(3L, "Ziemia obiecana", "Władysław Reymont", false);
+
+        // THEN
+        assertThat(index.search("andrzej", null, 10)).containsExactly(4L);
+        assertThat(index.search("wiedzmin", null, 10)).isEmpty();
+        assertThat(index.search("lod", null, 10)).isEmpty();
+        assertThat(index.search("reymont", null, 10)).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.termCount()).isLessThan(termsBefore);
+    }
+}
@@ -1,19 +1,30 @@
 package pl.booklist.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import pl.booklist.config.BookListProperties;
 import pl.booklist.dto.BookDTO;
+import pl.booklist.dto.BookPageDTO;
+import pl.booklist.dto.BookShelfDTO;
+import pl.booklist.dto.BookSort;
+import pl.booklist.event.BookChangedEvent;
 import pl.booklist.mapper.BookMapper;
-import pl.booklist.model.Book;
 import pl.booklist.repository.BookRepository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,25 +36,36 @@ class BookServiceTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private BookListCache bookListCache;
+
+    @Mock
+    private CatalogVersionTracker catalogVersionTracker;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private BookListProperties properties = new BookListProperties();
+
     @InjectMocks
     private BookService bookService;
 
-    private final Book bookEntity1 = new Book(1L, "Wiedźmin", "Sapkowski", true, "url1");
-    private final Book bookEntity2 = new Book(2L, "Lód", "Dukaj", false, "url2");
-
     private final BookDTO bookDto1 = new BookDTO(1L, "Wiedźmin DTO", "Sapkowski DTO", true, "url1");
     private final BookDTO bookDto2 = new BookDTO(2L, "Lód DTO", "Dukaj DTO", false, "url2");
 
-    @Test
-    @DisplayName("should find all books and map them to DTOs")
-    void findAllBooks_shouldReturnMappedDTOList() {
-        //given
-        List<Book> entityList = List.of(bookEntity1, bookEntity2);
-
-        when(bookRepository.findAll()).thenReturn(entityList);
+    @BeforeEach
+    void setUp() {
+        // the cache always misses, so every read reaches the repository
+        lenient().when(bookListCache.get(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
 
-        when(bookMapper.toDto(bookEntity1)).thenReturn(bookDto1);
-        when(bookMapper.toDto(bookEntity2)).thenReturn(bookDto2);
+    @Test
+    @DisplayName("should find all books as DTO projections without the mapper")
+    void findAllBooks_shouldReturnProjectedDTOList() {
+        // GIVEN
+        when(bookRepository.findAllDtos()).thenReturn(List.of(bookDto1, bookDto2));
 
         // WHEN
         List<BookDTO> result = bookService.findAllBooks();
@@ -53,20 +75,16 @@ class BookServiceTest {
         assertThat(result).hasSize(2);
         assertThat(result).containsExactly(bookDto1, bookDto2);
 
-        verify(bookRepository, times(1)).findAll();
-
-        verify(bookMapper, times(1)).toDto(bookEntity1);
-        verify(bookMapper, times(1)).toDto(bookEntity2);
+        verify(bookRepository, times(1)).findAllDtos();
+        verify(bookRepository, never()).findAll();
+        verifyNoInteractions(bookMapper);
     }
 
     @Test
-    @DisplayName("should find unowned books and map them to DTOs")
-    void findUnownedBooks_shouldReturnOnlyUnownedMappedDTOs() {
+    @DisplayName("should find unowned books as DTO projections")
+    void findUnownedBooks_shouldReturnOnlyUnownedDTOs() {
         // GIVEN
-        List<Book> unownedEntityList = List.of(bookEntity2);
-
-        when(bookRepository.findByOwnedFalse()).thenReturn(unownedEntityList);
-        when(bookMapper.toDto(bookEntity2)).thenReturn(bookDto2);
+        when(bookRepository.findDtosByOwned(false)).thenReturn(List.of(bookDto2));
 
         // WHEN
         List<BookDTO> result = bookService.findUnownedBooks();
@@ -75,18 +93,15 @@ class BookServiceTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0).isOwned()).isFalse();
 
-        verify(bookRepository, times(1)).findByOwnedFalse();
-        verify(bookMapper, times(1)).toDto(bookEntity2);
+        verify(bookRepository, times(1)).findDtosByOwned(false);
+        verifyNoInteractions(bookMapper);
     }
 
     @Test
-    @DisplayName("should find owned books and map them to DTOs")
-    void findOwnedBooks_shouldReturnOnlyOwnedMappedDTOs() {
+    @DisplayName("should find owned books as DTO projections")
+    void findOwnedBooks_shouldReturnOnlyOwnedDTOs() {
         // GIVEN
-        List<Book> ownedEntityList = List.of(bookEntity1);
-
-        when(bookRepository.findByOwnedTrue()).thenReturn(ownedEntityList);
-        when(bookMapper.toDto(bookEntity1)).thenReturn(bookDto1);
+        when(bookRepository.findDtosByOwned(true)).thenReturn(List.of(bookDto1));
 
         // WHEN
         List<BookDTO> result = bookService.findOwnedBooks();
@@ -96,16 +111,15 @@ class BookServiceTest {
         assertThat(result.get(0).isOwned()).isTrue();
         assertThat(result).containsExactly(bookDto1);
 
-        verify(bookRepository, times(1)).findByOwnedTrue();
-        verify(bookMapper, times(1)).toDto(bookEntity1);
+        verify(bookRepository, times(1)).findDtosByOwned(true);
+        verifyNoInteractions(bookMapper);
     }
 
     @Test
     @DisplayName("should return an empty list when no books are found")
     void findAllBooks_shouldReturnEmptyListWhenRepositoryIsEmpty() {
         // GIVEN
-        List<Book> emptyList = List.of();
-        when(bookRepository.findAll()).thenReturn(emptyList);
+        when(bookRepository.findAllDtos()).thenReturn(List.of());
 
         // WHEN
         List<BookDTO> result = bookService.findAllBooks();
@@ -114,8 +128,151 @@ class BookServiceTest {
         assertThat(result).isNotNull();
         assertThat(result).isEmpty();
 
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findAllDtos();
+    }
+
+    @Test
+    @DisplayName("should return a page with the next cursor when more books are available")
+    void findBooksPage_shouldReturnNextCursorWhenMoreBooksExist() {
+        // GIVEN
+        when(bookRepository.findDtoPage(0L, Limit.of(2))).thenReturn(List.of(bookDto1, bookDto2));
+
+        // WHEN
+        BookPageDTO result = bookService.findBooksPage(null, 0L, 1);
 
-        verify(bookMapper, never()).toDto(any(Book.class));
+        // THEN
+        assertThat(result.getItems()).containsExactly(bookDto1);
+        assertThat(result.hasMore()).isTrue();
+        assertThat(result.getNextCursor()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("should return the last page without a cursor")
+    void findBooksPage_shouldReturnNoCursorOnLastPage() {
+        // GIVEN
+        when(bookRepository.findDtoPageByOwned(false, 1L, Limit.of(11))).thenReturn(List.of(bookDto2));
+
+        // WHEN
+        BookPageDTO result = bookService.findBooksPage(false, 1L, 10);
+
+        // THEN
+        assertThat(result.getItems()).containsExactly(bookDto2);
+        assertThat(result.hasMore()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("should split the books of a single shelf query into owned books and wishlist")
+    void findShelf_shouldPartitionBooksByOwnership() {
+        // GIVEN
+        when(bookRepository.findShelf(11)).thenReturn(List.of(bookDto1, bookDto2));
+
+        // WHEN
+        BookShelfDTO result = bookService.findShelf(10);
+
+        // THEN
+        assertThat(result.getOwned().getItems()).containsExactly(bookDto1);
+        assertThat(result.getWishlist().getItems()).containsExactly(bookDto2);
+        assertThat(result.getOwned().hasMore()).isFalse();
+        assertThat(result.getWishlist().hasMore()).isFalse();
+
+        verify(bookRepository, times(1)).findShelf(11);
+        verify(bookRepository, never()).findDtosByOwned(anyBoolean());
+        verifyNoInteractions(bookMapper);
+    }
+
+    @Test
+    @DisplayName("should derive the list ETag from the catalog version without reading the books")
+    void getListETag_shouldChangeWithCatalogVersion() {
+        // GIVEN
+        when(catalogVersionTracker.current()).thenReturn(7L, 7L, 8L);
+
+        // WHEN
+        String first = bookService.getListETag();
+        String unchanged = bookService.getListETag();
+        String changed = bookService.getListETag();
+
+        // THEN
+        assertThat(first).isEqualTo("\"books-7\"").isEqualTo(unchanged);
+        assertThat(changed).isNotEqualTo(first);
+        verifyNoInteractions(bookRepository, bookMapper);
+    }
+
+    @Test
+    @DisplayName("should move books to the collection with a single update and publish one event")
+    void markAllAsOwned_shouldUpdateBooksWithSingleStatement() {
+        // GIVEN
+        when(bookRepository.markOwned(List.of(1L, 2L))).thenReturn(2);
+
+        // WHEN
+        int moved = bookService.markAllAsOwned(List.of(1L, 2L, 1L));
+
+        // THEN
+        assertThat(moved).isEqualTo(2);
+        verify(bookRepository, never()).findById(any());
+        verify(bookRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("should reject moving a book which does not exist")
+    void markAsOwned_shouldThrowWhenBookDoesNotExist() {
+        // GIVEN
+        when(bookRepository.markOwned(List.of(42L))).thenReturn(0);
+        when(bookRepository.existsById(42L)).thenReturn(false);
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> bookService.markAsOwned(42L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("should delete books with a single statement")
+    void deleteAll_shouldDeleteBooksWithSingleStatement() {
+        // GIVEN
+        when(bookRepository.deleteByIds(List.of(1L, 2L))).thenReturn(2);
+
+        // WHEN
+        int deleted = bookService.deleteAll(List.of(1L, 2L));
+
+        // THEN
+        assertThat(deleted).isEqualTo(2);
+        verify(bookRepository, never()).softDeleteByIds(any(), any());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("should only set the tombstone of deleted books when soft deletes are enabled")
+    void deleteAll_shouldSoftDeleteWhenEnabled() {
+        // GIVEN
+        properties.getDelete().setSoft(true);
+        bookService = new BookService(bookRepository, bookMapper, null, null, bookListCache, null,
+                catalogVersionTracker, eventPublisher, properties);
+        when(bookRepository.softDeleteByIds(eq(List.of(1L)), any(Instant.class))).thenReturn(1);
+
+        // WHEN
+        int deleted = bookService.deleteAll(List.of(1L));
+
+        // THEN
+        assertThat(deleted).isEqualTo(1);
+        verify(bookRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    @DisplayName("should return the title of the last book as the key of the next page sorted by title")
+    void findBooksPage_shouldReturnSortKeyOfLastBook() {
+        // GIVEN
+        BookDTO bookDto3 = new BookDTO(3L, "Solaris", "Lem", false, "url3");
+        when(bookRepository.findDtoPageByOwnedOrderByTitle(false, "", 0L, Limit.of(2)))
+                .thenReturn(List.of(bookDto2, bookDto3));
+
+        // WHEN
+        BookPageDTO page = bookService.findBooksPage(false, BookSort.TITLE, null, 0, 1);
+
+        // THEN
+        assertThat(page.getItems()).containsExactly(bookDto2);
+        assertThat(page.getNextCursor()).isEqualTo(2L);
+        assertThat(page.getNextKey()).isEqualTo("Lód DTO");
     }
 }
@@ -0,0 +1,58 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pl.booklist.dto.BookDTO;
+import pl.booklist.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the changes through {@link BookService}, so the version is bumped by the listener of
+ * {@link BookListCache} after the commit, like in the application.
+ */
+@SpringBootTest(properties = {
+        "booklist.cover.async.enabled=false",
+        "booklist.cache.version-check-interval=1h"
+})
+@ActiveProfiles("test")
+class CatalogVersionTrackerTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final List<Long> createdBooks = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteByIds(createdBooks);
+    }
+
+    @Test
+    @DisplayName("GIVEN a cached wishlist, WHEN a single book is moved to the collection, THEN the ETag and the lists change")
+    void shouldChangeETagWhenSingleBookIsMovedToCollection() {
+        // GIVEN
+        Long id = bookService.addBook(new BookDTO(null, "Solaris", "Stanisław Lem", false, "http://cover.url")).getId();
+        createdBooks.add(id);
+        String eTagBefore = bookService.getListETag();
+        assertThat(bookService.findUnownedBooks()).extracting(BookDTO::getId).contains(id);
+
+        // WHEN
+        bookService.markAsOwned(id);
+
+        // THEN
+        assertThat(bookService.getListETag()).isNotEqualTo(eTagBefore);
+        assertThat(bookService.findUnownedBooks()).extracting(BookDTO::getId).doesNotContain(id);
+        assertThat(bookService.findOwnedBooks()).extracting(BookDTO::getId).contains(id);
+    }
+}
@@ -0,0 +1,95 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import pl.booklist.config.BookListProperties;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoverCircuitBreakerTest {
+
+    private long now;
+    private CoverCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getCover().getCircuitBreaker().setFailureThreshold(3);
+        properties.getCover().getCircuitBreaker().setOpenDuration(Duration.ofSeconds(30));
+        circuitBreaker = new CoverCircuitBreaker(properties, () -> now);
+    }
+
+    @Test
+    @DisplayName("should skip calls after consecutive upstream failures")
+    void shouldOpenAfterConsecutiveFailures() {
+        // WHEN
+        failCalls(3);
+
+        // THEN
+        assertThat(circuitBreaker.getState()).isEqualTo(CoverCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+        assertThat(circuitBreaker.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not count client errors other than 429 as upstream failures")
+    void shouldIgnoreClientErrors() {
+        // WHEN
+        failCalls(2);
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onFailure(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null));
+        failCalls(2);
+
+        // THEN
+        assertThat(circuitBreaker.getState()).isEqualTo(CoverCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("should let a single trial call through after the open duration and close on its success")
+    void shouldCloseAfterSuccessfulTrial() {
+        // GIVEN
+        failCalls(3);
+        now += Duration.ofSeconds(30).toNanos();
+
+        // WHEN
+        boolean trial = circuitBreaker.tryAcquire();
+        boolean concurrent = circuitBreaker.tryAcquire();
+        circuitBreaker.onSuccess();
+
+        // THEN
+        assertThat(trial).isTrue();
+        assertThat(concurrent).isFalse();
+        assertThat(circuitBreaker.getState()).isEqualTo(CoverCircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should open again when the trial call fails")
+    void shouldReopenAfterFailedTrial() {
+        // GIVEN
+        failCalls(3);
+        now += Duration.ofSeconds(30).toNanos();
+
+        // WHEN
+        circuitBreaker.tryAcquire();
+        circuitBreaker.onFailure(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // THEN
+        assertThat(circuitBreaker.getState()).isEqualTo(CoverCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    private void failCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            circuitBreaker.tryAcquire();
+            circuitBreaker.onFailure(new ResourceAccessException("Read timed out"));
+        }
+    }
+}
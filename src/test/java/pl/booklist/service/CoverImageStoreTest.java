@@ -0,0 +1,98 @@
+package pl.booklist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.booklist.config.BookListProperties;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoverImageStoreTest {
+
+    private static final String COVER_URL = "http://books.google.com/books/content?id=abc&img=1&zoom=1";
+    private static final String CONTENT_HASH = "0".repeat(64);
+
+    @TempDir
+    Path directory;
+
+    private CoverImageStore store;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        properties.getCover().getImages().setDirectory(directory);
+        properties.getCover().getImages().setWidths(List.of(160, 320));
+        store = new CoverImageStore(null, properties);
+    }
+
+    @Test
+    @DisplayName("should store only http covers from the allowed hosts")
+    void shouldStoreOnlyAllowedHosts() {
+        // THEN
+        assertThat(store.isStorable(COVER_URL)).isTrue();
+        assertThat(store.isStorable("https://example.com/cover.jpg")).isFalse();
+        assertThat(store.isStorable(CoverService.DEFAULT_COVER_URL)).isFalse();
+        assertThat(store.isStorable(null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should report covers which have not been downloaded yet as missing")
+    void shouldNotFindMissingCover() {
+        // THEN
+        assertThat(store.find(COVER_URL, 160)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should resize the stored cover to the nearest configured width")
+    void shouldResizeToNearestWidth() throws Exception {
+        // GIVEN
+        storeOriginal(new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB));
+
+        // WHEN
+        CoverImageStore.StoredImage image = store.find(COVER_URL, 100).orElseThrow();
+
+        // THEN
+        assertThat(image.tag()).isEqualTo(CONTENT_HASH + "-w160");
+        assertThat(image.contentType().toString()).isEqualTo("image/png");
+        BufferedImage thumbnail = ImageIO.read(image.path().toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(160);
+        assertThat(thumbnail.getHeight()).isEqualTo(240);
+    }
+
+    @Test
+    @DisplayName("should not enlarge covers smaller than the requested width")
+    void shouldNotEnlargeSmallCovers() throws Exception {
+        // GIVEN
+        storeOriginal(new BufferedImage(128, 192, BufferedImage.TYPE_INT_RGB));
+
+        // WHEN
+        CoverImageStore.StoredImage image = store.find(COVER_URL, 320).orElseThrow();
+
+        // THEN
+        assertThat(ImageIO.read(image.path().toFile()).getWidth()).isEqualTo(128);
+    }
+
+    /**
+     * Puts the image into the store the same way a finished download does.
+     */
+    private void storeOriginal(BufferedImage image) throws Exception {
+        String blobName = CONTENT_HASH.substring(0, 2) + "/" + CONTENT_HASH + ".png";
+        Path blob = directory.resolve("blobs").resolve(blobName);
+        Files.createDirectories(blob.getParent());
+        ImageIO.write(image, "png", blob.toFile());
+
+        String urlHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(COVER_URL.getBytes(StandardCharsets.UTF_8)));
+        Files.writeString(directory.resolve("sources").resolve(urlHash), blobName);
+    }
+}
@@ -0,0 +1,135 @@
+package pl.booklist.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import pl.booklist.config.BookListProperties;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoverServiceTest {
+
+    private static final String THUMBNAIL = "http://books.google.com/books/content?id=abc&img=1";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private CoverCache coverCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CoverService coverService;
+
+    @BeforeEach
+    void setUp() {
+        BookListProperties properties = new BookListProperties();
+        coverService = new CoverService(restTemplate, coverCache,
+                new CoverCircuitBreaker(properties), meterRegistry, properties);
+    }
+
+    @Test
+    @DisplayName("should share one Google Books call between concurrent lookups of the same book")
+    void findCoverUrl_shouldCoalesceConcurrentLookups() throws Exception {
+        // GIVEN
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(), any(), any(Object[].class))).thenAnswer(invocation -> {
+            callStarted.countDown();
+            releaseCall.await(5, TimeUnit.SECONDS);
+            ResponseExtractor<?> extractor = invocation.getArgument(3);
+            return extractor.extractData(new MockClientHttpResponse(volume(), HttpStatus.OK));
+        });
+
+        // WHEN
+        CompletableFuture<Optional<String>> first =
+                CompletableFuture.supplyAsync(() -> coverService.findCoverUrl("Lód", "Jacek Dukaj"));
+        assertThat(callStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Optional<String>> second =
+                CompletableFuture.supplyAsync(() -> coverService.findCoverUrl("  lód ", "JACEK   dukaj"));
+        waitUntilCoalesced();
+        releaseCall.countDown();
+
+        // THEN
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains(THUMBNAIL);
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains(THUMBNAIL);
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(), any(), any(Object[].class));
+        verify(coverCache, times(1)).put(CoverCache.keyOf("Lód", "Jacek Dukaj"), THUMBNAIL);
+    }
+
+    @Test
+    @DisplayName("should pass the error of a failed call and not cache it")
+    void findCoverUrl_shouldPropagateFailures() {
+        // GIVEN
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(), any(), any(Object[].class)))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> coverService.findCoverUrl("Lód", "Jacek Dukaj"))
+                .isInstanceOf(ResourceAccessException.class);
+        assertThat(coverService.fetchCoverUrl("Lód", "Jacek Dukaj")).isEqualTo(CoverService.DEFAULT_COVER_URL);
+        verify(coverCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("should read the thumbnail of the first volume and skip everything before it")
+    void thumbnailOf_shouldStreamToTheThumbnailOfTheFirstVolume() throws Exception {
+        // GIVEN
+        String response = """
+                {"kind": "books#volumes", "totalItems": 2, "items": [
+                  {"id": "a", "volumeInfo": {"title": "Lód", "authors": ["Jacek Dukaj"],
+                    "industryIdentifiers": [{"type": "ISBN_13", "identifier": "9788308039760"}],
+                    "imageLinks": {"smallThumbnail": "small", "thumbnail": "%s"}}},
+                  {"id": "b", "volumeInfo": {"imageLinks": {"thumbnail": "second"}}}
+                ]}
+                """.formatted(THUMBNAIL);
+
+        // WHEN / THEN
+        assertThat(CoverService.thumbnailOf(stream(response))).contains(THUMBNAIL);
+        assertThat(CoverService.thumbnailOf(stream("{\"kind\": \"books#volumes\", \"totalItems\": 0}"))).isEmpty();
+        assertThat(CoverService.thumbnailOf(stream("{\"items\": [{\"volumeInfo\": {\"title\": \"Lód\"}}]}"))).isEmpty();
+        assertThat(CoverService.thumbnailOf(stream(""))).isEmpty();
+    }
+
+    private void waitUntilCoalesced() throws InterruptedException {
+        // the second lookup finds the first one in flight and waits for it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("booklist.cover.lookups", "outcome", "coalesced").count() < 1
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static byte[] volume() {
+        return """
+                {"items": [{"volumeInfo": {"imageLinks": {"thumbnail": "%s"}}}]}
+                """.formatted(THUMBNAIL).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}